@@ -0,0 +1,51 @@
+package com.pkm.userialization.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Базовая линия: стандартная сериализация {@link ObjectOutputStream}/{@link ObjectInputStream}
+ * на тех сценариях {@link Payloads}, где все значения Serializable.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JdkSerializationBenchmark {
+
+    @Param({"intArray", "byteArray", "doubleArray", "integerList", "stringMap"})
+    public String scenario;
+
+    private Object payload;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() throws Exception {
+        payload = Payloads.create(scenario);
+        bytes = serialize(payload);
+    }
+
+    static byte[] serialize(Object obj) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            oos.writeObject(obj);
+        }
+        return baos.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return serialize(payload);
+    }
+
+    @Benchmark
+    public Object deserialize() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return ois.readObject();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.pkm.userialization.benchmark;
+
+import com.pkm.userialization.serializer.ObjectSerializer;
+import com.pkm.userialization.serializer.ObjectSerializerImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность сериализации и десериализации {@link ObjectSerializerImpl}.
+ * Частоту выделения памяти показывает профайлер gc: {@code java -jar target/benchmarks.jar -prof gc}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ObjectSerializerBenchmark {
+
+    @Param({"university", "human", "student", "house", "testEnum",
+            "intArray", "byteArray", "doubleArray",
+            "integerList", "stringMap", "studentList", "studentMap", "deepNesting"})
+    public String scenario;
+
+    @Param({"default", "classTable", "compact"})
+    public String mode;
+
+    private ObjectSerializer serializer;
+    private Object payload;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() throws Exception {
+        serializer = new ObjectSerializerImpl(Payloads.config(mode));
+        payload = Payloads.create(scenario);
+        bytes = serializer.serializeObj(payload);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return serializer.serializeObj(payload);
+    }
+
+    @Benchmark
+    public Object deserialize() throws Exception {
+        return serializer.deserializeObj(bytes);
+    }
+}
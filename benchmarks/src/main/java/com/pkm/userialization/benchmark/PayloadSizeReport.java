@@ -0,0 +1,43 @@
+package com.pkm.userialization.benchmark;
+
+import com.pkm.userialization.serializer.ObjectSerializerImpl;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Печатает размер сериализованных данных для каждого сценария и режима,
+ * а также размер для {@link java.io.ObjectOutputStream}, если сценарий его поддерживает.
+ */
+public class PayloadSizeReport {
+
+    private static final String[] SCENARIOS = {"university", "human", "student", "house", "testEnum",
+            "intArray", "byteArray", "doubleArray",
+            "integerList", "stringMap", "studentList", "studentMap", "deepNesting"};
+
+    private static final String[] MODES = {"default", "classTable", "compact"};
+
+    public static void main(String[] args) throws Exception {
+        List<String> jdkSerializable = Arrays.asList(Payloads.JDK_SERIALIZABLE);
+
+        System.out.printf("%-12s", "scenario");
+        for (String mode : MODES) {
+            System.out.printf("%14s", mode);
+        }
+        System.out.printf("%14s%n", "jdk");
+
+        for (String scenario : SCENARIOS) {
+            Object payload = Payloads.create(scenario);
+            System.out.printf("%-12s", scenario);
+            for (String mode : MODES) {
+                int size = new ObjectSerializerImpl(Payloads.config(mode)).serializeObj(payload).length;
+                System.out.printf("%14d", size);
+            }
+            if (jdkSerializable.contains(scenario)) {
+                System.out.printf("%14d%n", JdkSerializationBenchmark.serialize(payload).length);
+            } else {
+                System.out.printf("%14s%n", "-");
+            }
+        }
+    }
+}
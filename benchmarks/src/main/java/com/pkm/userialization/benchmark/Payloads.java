@@ -0,0 +1,122 @@
+package com.pkm.userialization.benchmark;
+
+import com.pkm.userialization.serializer.SerializerConfig;
+import com.pkm.userialization.testclasses.*;
+
+import java.util.*;
+
+/**
+ * Тестовые данные и режимы сериализатора, общие для всех бенчмарков
+ */
+public class Payloads {
+
+    static final int LARGE_SIZE = 100_000;
+    static final int ARRAY_SIZE = 1 << 20;
+    static final int NESTING_DEPTH = 1_000;
+
+    /**
+     * Сценарии, которые поддерживает и {@link java.io.ObjectOutputStream} (все значения Serializable)
+     */
+    static final String[] JDK_SERIALIZABLE = {"intArray", "byteArray", "doubleArray", "integerList", "stringMap"};
+
+    /**
+     * Возвращает объект для указанного сценария
+     */
+    public static Object create(String scenario) {
+        switch (scenario) {
+            case "university":
+                return new University("DNU", 4);
+            case "human":
+                return new Human("John", "Ivanov", 27, Gender.MALE);
+            case "student":
+                return student(1);
+            case "house":
+                return new House("Lenina 1", 9, true);
+            case "testEnum":
+                return TestEnum.TWO;
+            case "intArray": {
+                int[] arr = new int[ARRAY_SIZE];
+                for (int i = 0; i < arr.length; i++) {
+                    arr[i] = i * 31;
+                }
+                return arr;
+            }
+            case "byteArray": {
+                byte[] arr = new byte[ARRAY_SIZE];
+                new Random(42).nextBytes(arr);
+                return arr;
+            }
+            case "doubleArray": {
+                double[] arr = new double[ARRAY_SIZE];
+                for (int i = 0; i < arr.length; i++) {
+                    arr[i] = i / 3.0;
+                }
+                return arr;
+            }
+            case "integerList": {
+                List<Integer> list = new ArrayList<>();
+                for (int i = 0; i < LARGE_SIZE; i++) {
+                    list.add(i);
+                }
+                return list;
+            }
+            case "stringMap": {
+                Map<String, Integer> map = new HashMap<>();
+                for (int i = 0; i < LARGE_SIZE; i++) {
+                    map.put("key-" + i, i);
+                }
+                return map;
+            }
+            case "studentList": {
+                List<Student> list = new ArrayList<>();
+                for (int i = 0; i < LARGE_SIZE; i++) {
+                    list.add(student(i));
+                }
+                return list;
+            }
+            case "studentMap": {
+                Map<Integer, Student> map = new HashMap<>();
+                for (int i = 0; i < LARGE_SIZE; i++) {
+                    map.put(i, student(i));
+                }
+                return map;
+            }
+            case "deepNesting": {
+                TreeNode root = new TreeNode("root");
+                TreeNode node = root;
+                for (int i = 0; i < NESTING_DEPTH; i++) {
+                    node.getChildren().add(new TreeNode("node-" + i));
+                    node = node.getChildren().get(0);
+                }
+                return root;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown scenario " + scenario);
+        }
+    }
+
+    /**
+     * Возвращает настройки сериализатора для указанного режима
+     */
+    public static SerializerConfig config(String mode) {
+        switch (mode) {
+            case "default":
+                return SerializerConfig.DEFAULT;
+            case "classTable":
+                return SerializerConfig.builder().classTable(true).build();
+            case "compact":
+                return SerializerConfig.builder().classTable(true).compact(true).build();
+            default:
+                throw new IllegalArgumentException("Unknown mode " + mode);
+        }
+    }
+
+    private static Student student(int i) {
+        Student student = new Student(i % 2 == 0 ? "FPM" : "FDS", new University("DNU", i % 5));
+        student.setName("Name" + i);
+        student.setSurname("Surname" + i);
+        student.setAge(17 + i % 10);
+        student.setGender(i % 2 == 0 ? Gender.MALE : Gender.FEMALE);
+        return student;
+    }
+}
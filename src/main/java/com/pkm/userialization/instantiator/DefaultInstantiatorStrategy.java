@@ -0,0 +1,93 @@
+package com.pkm.userialization.instantiator;
+
+import com.pkm.userialization.utils.ReflectionUtils;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Использует конструктор без аргументов, если он есть. Иначе - конструктор для сериализации
+ * (как {@link java.io.ObjectInputStream}): объект выделяется без вызова конструкторов класса и его предков,
+ * все поля получают значения по умолчанию. Если конструктор для сериализации недоступен (нет
+ * {@code sun.reflect.ReflectionFactory}), используется конструктор с наименьшим числом аргументов,
+ * которым передаются значения по умолчанию.
+ */
+public class DefaultInstantiatorStrategy implements InstantiatorStrategy {
+
+    public static final DefaultInstantiatorStrategy INSTANCE = new DefaultInstantiatorStrategy();
+
+    /**
+     * {@code ReflectionFactory.getReflectionFactory()} и его метод newConstructorForSerialization,
+     * найденные рефлексией, чтобы не зависеть от внутреннего API при компиляции; null, если недоступны
+     */
+    private static final Object REFLECTION_FACTORY;
+    private static final Method NEW_CONSTRUCTOR_FOR_SERIALIZATION;
+
+    static {
+        Object factory;
+        Method method;
+        try {
+            Class<?> factoryClass = Class.forName("sun.reflect.ReflectionFactory");
+            factory = factoryClass.getMethod("getReflectionFactory").invoke(null);
+            method = factoryClass.getMethod("newConstructorForSerialization", Class.class, Constructor.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            factory = null;
+            method = null;
+        }
+        REFLECTION_FACTORY = factory;
+        NEW_CONSTRUCTOR_FOR_SERIALIZATION = method;
+    }
+
+    @Override
+    public Instantiator instantiatorFor(Class<?> clazz) {
+        if (clazz.isInterface() || Modifier.isAbstract(clazz.getModifiers())) {
+            return () -> {
+                throw new InstantiationException(clazz.getName());
+            };
+        }
+        Constructor<?> constructor = ReflectionUtils.getNoArgsConstructor(clazz);
+        if (constructor == null) {
+            constructor = newConstructorForSerialization(clazz);
+        }
+        if (constructor == null) {
+            return minArgsInstantiator(clazz);
+        }
+        constructor.setAccessible(true);
+        return constructor::newInstance;
+    }
+
+    /**
+     * Конструктор с наименьшим числом аргументов и значения по умолчанию для них находятся один раз,
+     * при создании экземпляра рефлексия уже не выполняется
+     */
+    static Instantiator minArgsInstantiator(Class<?> clazz) {
+        Constructor<?> constructor = ReflectionUtils.getMinArgsConstructor(clazz);
+        if (constructor == null) {
+            return () -> {
+                throw new NoSuchMethodException(clazz.getName());
+            };
+        }
+        constructor.setAccessible(true);
+        Object[] arguments = ReflectionUtils.getDefaultArguments(constructor);
+        return () -> constructor.newInstance(arguments);
+    }
+
+    /**
+     * Конструктор для сериализации или null, если ReflectionFactory недоступен
+     */
+    private static Constructor<?> newConstructorForSerialization(Class<?> clazz) {
+        if (NEW_CONSTRUCTOR_FOR_SERIALIZATION == null) {
+            return null;
+        }
+        try {
+            return (Constructor<?>) NEW_CONSTRUCTOR_FOR_SERIALIZATION.invoke(REFLECTION_FACTORY,
+                    clazz, Object.class.getDeclaredConstructor());
+        } catch (IllegalAccessException | NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.pkm.userialization.instantiator;
+
+/**
+ * Создает новые экземпляры одного класса при десериализации
+ */
+@FunctionalInterface
+public interface Instantiator {
+
+    Object newInstance() throws ReflectiveOperationException;
+}
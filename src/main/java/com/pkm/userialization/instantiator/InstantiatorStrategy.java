@@ -0,0 +1,11 @@
+package com.pkm.userialization.instantiator;
+
+/**
+ * Способ создания экземпляров классов при десериализации.
+ * Вызывается один раз на класс, полученный {@link Instantiator} кэшируется сериализатором.
+ */
+@FunctionalInterface
+public interface InstantiatorStrategy {
+
+    Instantiator instantiatorFor(Class<?> clazz);
+}
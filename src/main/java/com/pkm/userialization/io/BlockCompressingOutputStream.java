@@ -0,0 +1,150 @@
+package com.pkm.userialization.io;
+
+import com.pkm.userialization.utils.VarInts;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Поток, записывающий данные сжатым кадром из независимых блоков. Каждый блок начинается байтом типа:
+ * <ul>
+ *     <li>{@link #END} - конец кадра;</li>
+ *     <li>{@link #STORED} - varint-длина и несжатые данные;</li>
+ *     <li>{@link #DEFLATED} - varint-длина исходных данных, varint-длина сжатых данных и данные,
+ *     сжатые {@link Deflater} в формате zlib.</li>
+ * </ul>
+ * Блоки короче порога, а также блоки, которые не уменьшились при сжатии, записываются несжатыми.
+ * Кадр завершается методом {@link #finish()}; {@link #close()} освобождает Deflater,
+ * но не закрывает исходный поток.
+ */
+public class BlockCompressingOutputStream extends OutputStream {
+
+    public static final int END = 0;
+    public static final int STORED = 1;
+    public static final int DEFLATED = 2;
+
+    private static final int INITIAL_BLOCK_CAPACITY = 1024;
+
+    private final DataOutputStream out;
+    private final Deflater deflater;
+    private final int threshold;
+    private final int blockSize;
+    private byte[] block;
+    private byte[] compressed;
+    private int count;
+    private boolean finished;
+
+    /**
+     * @param level     уровень сжатия {@link Deflater}
+     * @param blockSize размер блока несжатых данных
+     * @param threshold блоки короче этого размера не сжимаются
+     */
+    public BlockCompressingOutputStream(OutputStream out, int level, int blockSize, int threshold) {
+        this.out = new DataOutputStream(out);
+        this.deflater = new Deflater(level);
+        this.threshold = threshold;
+        this.blockSize = blockSize;
+        this.block = new byte[Math.min(blockSize, INITIAL_BLOCK_CAPACITY)];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == block.length) {
+            makeRoom();
+        }
+        block[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (count == block.length) {
+                makeRoom();
+            }
+            int n = Math.min(len, block.length - count);
+            System.arraycopy(b, off, block, count, n);
+            count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Записывает накопленные данные отдельным блоком и сбрасывает исходный поток
+     */
+    @Override
+    public void flush() throws IOException {
+        writeBlock();
+        out.flush();
+    }
+
+    /**
+     * Записывает последний блок и маркер конца кадра. Исходный поток не закрывается.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        writeBlock();
+        out.writeByte(END);
+        out.flush();
+        finished = true;
+    }
+
+    /**
+     * Освобождает Deflater. Не завершает кадр и не закрывает исходный поток.
+     */
+    @Override
+    public void close() {
+        deflater.end();
+    }
+
+    /**
+     * Буфер блока растет до размера блока, чтобы небольшие объекты не требовали полного буфера
+     */
+    private void makeRoom() throws IOException {
+        if (block.length < blockSize) {
+            block = Arrays.copyOf(block, Math.min(blockSize, 2 * block.length));
+        } else {
+            writeBlock();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        if (count == 0) {
+            return;
+        }
+        int compressedLength = count < threshold ? -1 : deflate();
+        if (compressedLength < 0) {
+            out.writeByte(STORED);
+            VarInts.writeUnsignedVarInt(out, count);
+            out.write(block, 0, count);
+        } else {
+            out.writeByte(DEFLATED);
+            VarInts.writeUnsignedVarInt(out, count);
+            VarInts.writeUnsignedVarInt(out, compressedLength);
+            out.write(compressed, 0, compressedLength);
+        }
+        count = 0;
+    }
+
+    /**
+     * Сжимает текущий блок; возвращает -1, если сжатые данные не короче исходных
+     */
+    private int deflate() {
+        if (compressed == null || compressed.length < count) {
+            compressed = new byte[block.length];
+        }
+        deflater.reset();
+        deflater.setInput(block, 0, count);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished() && length < count) {
+            length += deflater.deflate(compressed, length, count - length);
+        }
+        return deflater.finished() && length < count ? length : -1;
+    }
+}
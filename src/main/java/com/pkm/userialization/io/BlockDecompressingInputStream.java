@@ -0,0 +1,146 @@
+package com.pkm.userialization.io;
+
+import com.pkm.userialization.utils.VarInts;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import static com.pkm.userialization.io.BlockCompressingOutputStream.*;
+
+/**
+ * Чтение кадра, записанного {@link BlockCompressingOutputStream}. Блоки читаются и распаковываются
+ * по одному по мере чтения, из исходного потока не читается ничего сверх кадра.
+ * {@link #close()} освобождает Inflater, но не закрывает исходный поток.
+ */
+public class BlockDecompressingInputStream extends InputStream {
+
+    private final DataInputStream in;
+    private final Inflater inflater = new Inflater();
+    private byte[] block = new byte[0];
+    private byte[] compressed = new byte[0];
+    private int position;
+    private int limit;
+    private boolean finished;
+
+    public BlockDecompressingInputStream(InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return block[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, limit - position);
+        System.arraycopy(block, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    /**
+     * Дочитывает кадр до маркера конца, пропуская непрочитанные данные
+     */
+    public void finish() throws IOException {
+        while (!finished) {
+            position = limit;
+            readBlock();
+        }
+    }
+
+    /**
+     * Освобождает Inflater. Исходный поток не закрывается.
+     */
+    @Override
+    public void close() {
+        inflater.end();
+    }
+
+    private boolean fill() throws IOException {
+        while (position == limit) {
+            if (finished) {
+                return false;
+            }
+            readBlock();
+        }
+        return true;
+    }
+
+    private void readBlock() throws IOException {
+        int type = in.read();
+        if (type < 0) {
+            throw new EOFException("Compressed frame is not finished");
+        }
+        position = 0;
+        limit = 0;
+        switch (type) {
+            case END:
+                finished = true;
+                return;
+            case STORED:
+                limit = VarInts.readUnsignedVarInt(in);
+                in.readFully(ensureBlock(limit), 0, limit);
+                return;
+            case DEFLATED:
+                int length = VarInts.readUnsignedVarInt(in);
+                int compressedLength = VarInts.readUnsignedVarInt(in);
+                if (compressed.length < compressedLength) {
+                    compressed = new byte[compressedLength];
+                }
+                in.readFully(compressed, 0, compressedLength);
+                inflate(ensureBlock(length), length, compressedLength);
+                limit = length;
+                return;
+            default:
+                throw new StreamCorruptedException("Unknown block type " + type);
+        }
+    }
+
+    private byte[] ensureBlock(int length) {
+        if (block.length < length) {
+            block = new byte[length];
+        }
+        return block;
+    }
+
+    private void inflate(byte[] target, int length, int compressedLength) throws IOException {
+        inflater.reset();
+        inflater.setInput(compressed, 0, compressedLength);
+        try {
+            int n = 0;
+            while (n < length && !inflater.finished()) {
+                int inflated = inflater.inflate(target, n, length - n);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += inflated;
+            }
+            if (n != length) {
+                throw new ZipException("Compressed block is truncated");
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.pkm.userialization.io;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Пул буферов для повторного использования между вызовами сериализации.
+ * Буферы хранятся по корзинам размеров, кратных степени двойки. Потокобезопасен и не использует блокировок.
+ */
+public class BufferPool {
+
+    private static final int MIN_CAPACITY_SHIFT = 10;
+    private static final int BUCKETS = 31;
+
+    private final boolean direct;
+    private final int maxBuffersPerBucket;
+    private final ConcurrentLinkedQueue<ByteBuffer>[] buckets;
+    private final AtomicIntegerArray bucketSizes;
+
+    /**
+     * @param direct              выделять direct (off-heap) буферы вместо буферов в куче
+     * @param maxBuffersPerBucket сколько свободных буферов одного размера хранить в пуле
+     */
+    @SuppressWarnings("unchecked")
+    public BufferPool(boolean direct, int maxBuffersPerBucket) {
+        this.direct = direct;
+        this.maxBuffersPerBucket = maxBuffersPerBucket;
+        this.buckets = (ConcurrentLinkedQueue<ByteBuffer>[]) new ConcurrentLinkedQueue<?>[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.bucketSizes = new AtomicIntegerArray(BUCKETS);
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * Возвращает очищенный буфер емкостью не меньше указанной: из пула либо новый
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        int bucket = Math.max(MIN_CAPACITY_SHIFT, 32 - Integer.numberOfLeadingZeros(minCapacity - 1));
+        if (bucket >= BUCKETS) {
+            return allocate(minCapacity);
+        }
+        ByteBuffer buffer = buckets[bucket].poll();
+        if (buffer == null) {
+            return allocate(1 << bucket);
+        }
+        bucketSizes.decrementAndGet(bucket);
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Возвращает буфер в пул. После вызова буфер нельзя использовать.
+     * Буферы другого типа (direct/heap) и сверх лимита пула отбрасываются.
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer.isDirect() != direct || buffer.isReadOnly() || buffer.capacity() < 1 << MIN_CAPACITY_SHIFT) {
+            return;
+        }
+        int bucket = 31 - Integer.numberOfLeadingZeros(buffer.capacity());
+        if (bucket >= BUCKETS) {
+            return;
+        }
+        if (bucketSizes.incrementAndGet(bucket) > maxBuffersPerBucket) {
+            bucketSizes.decrementAndGet(bucket);
+            return;
+        }
+        buckets[bucket].offer(buffer);
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+}
@@ -0,0 +1,210 @@
+package com.pkm.userialization.io;
+
+import java.io.DataOutput;
+import java.io.OutputStream;
+import java.io.UTFDataFormatException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Реализация {@link DataOutput} поверх {@link ByteBuffer} (в куче или direct) в том же формате,
+ * что и {@link java.io.DataOutputStream}.
+ * Без пула пишет в переданный буфер и бросает {@link BufferOverflowException} при нехватке места;
+ * с пулом при нехватке места берет из пула буфер вдвое больше, а старый возвращает в пул;
+ * растущий буфер без пула при нехватке места заменяется новым буфером в куче вдвое больше.
+ */
+public class ByteBufferOutput extends OutputStream implements DataOutput {
+
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    private final BufferPool pool;
+    private final boolean growable;
+    private ByteBuffer buffer;
+
+    /**
+     * Запись в указанный буфер начиная с его текущей позиции. Порядок байт буфера меняется на BIG_ENDIAN.
+     */
+    public ByteBufferOutput(ByteBuffer buffer) {
+        this.pool = null;
+        this.growable = false;
+        this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Запись в растущий буфер из пула
+     */
+    public ByteBufferOutput(BufferPool pool, int initialCapacity) {
+        this.pool = pool;
+        this.growable = true;
+        this.buffer = pool.acquire(initialCapacity);
+    }
+
+    /**
+     * Запись в растущий буфер в куче без пула
+     */
+    public ByteBufferOutput(int initialCapacity) {
+        this.pool = null;
+        this.growable = true;
+        this.buffer = ByteBuffer.allocate(initialCapacity);
+    }
+
+    /**
+     * Текущий буфер; его позиция - конец записанных данных
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    public int position() {
+        return buffer.position();
+    }
+
+    /**
+     * Отбрасывает записанные данные, сохраняя текущий (возможно, выросший) буфер
+     */
+    public void reset() {
+        buffer.clear();
+    }
+
+    private void ensureRemaining(int n) {
+        if (buffer.remaining() >= n) {
+            return;
+        }
+        if (!growable) {
+            throw new BufferOverflowException();
+        }
+        long required = (long) buffer.position() + n;
+        long capacity = Math.max(required, 2L * buffer.capacity());
+        if (required > MAX_CAPACITY) {
+            throw new BufferOverflowException();
+        }
+        int newCapacity = (int) Math.min(capacity, MAX_CAPACITY);
+        ByteBuffer grown = pool != null ? pool.acquire(newCapacity) : ByteBuffer.allocate(newCapacity);
+        buffer.flip();
+        grown.put(buffer);
+        if (pool != null) {
+            pool.release(buffer);
+        }
+        buffer = grown;
+    }
+
+    @Override
+    public void write(int b) {
+        ensureRemaining(1);
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b) {
+        write(b, 0, b.length);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureRemaining(len);
+        buffer.put(b, off, len);
+    }
+
+    @Override
+    public void writeBoolean(boolean v) {
+        write(v ? 1 : 0);
+    }
+
+    @Override
+    public void writeByte(int v) {
+        write(v);
+    }
+
+    @Override
+    public void writeShort(int v) {
+        ensureRemaining(2);
+        buffer.putShort((short) v);
+    }
+
+    @Override
+    public void writeChar(int v) {
+        ensureRemaining(2);
+        buffer.putChar((char) v);
+    }
+
+    @Override
+    public void writeInt(int v) {
+        ensureRemaining(4);
+        buffer.putInt(v);
+    }
+
+    @Override
+    public void writeLong(long v) {
+        ensureRemaining(8);
+        buffer.putLong(v);
+    }
+
+    @Override
+    public void writeFloat(float v) {
+        ensureRemaining(4);
+        buffer.putFloat(v);
+    }
+
+    @Override
+    public void writeDouble(double v) {
+        ensureRemaining(8);
+        buffer.putDouble(v);
+    }
+
+    @Override
+    public void writeBytes(String s) {
+        int len = s.length();
+        ensureRemaining(len);
+        for (int i = 0; i < len; i++) {
+            buffer.put((byte) s.charAt(i));
+        }
+    }
+
+    @Override
+    public void writeChars(String s) {
+        int len = s.length();
+        ensureRemaining(len * 2);
+        for (int i = 0; i < len; i++) {
+            buffer.putChar(s.charAt(i));
+        }
+    }
+
+    /**
+     * Запись строки в модифицированной UTF-8, как {@link java.io.DataOutputStream#writeUTF(String)}
+     */
+    @Override
+    public void writeUTF(String s) throws UTFDataFormatException {
+        int strlen = s.length();
+        int utflen = 0;
+        for (int i = 0; i < strlen; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                utflen++;
+            } else if (c > 0x07FF) {
+                utflen += 3;
+            } else {
+                utflen += 2;
+            }
+        }
+        if (utflen > 65535) {
+            throw new UTFDataFormatException("encoded string too long: " + utflen + " bytes");
+        }
+
+        ensureRemaining(utflen + 2);
+        buffer.putShort((short) utflen);
+        for (int i = 0; i < strlen; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                buffer.put((byte) c);
+            } else if (c > 0x07FF) {
+                buffer.put((byte) (0xE0 | ((c >> 12) & 0x0F)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else {
+                buffer.put((byte) (0xC0 | ((c >> 6) & 0x1F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.pkm.userialization.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+
+/**
+ * Чтение кадра, записанного {@link ChunkedOutputStream}. Каждый кусок читается из исходного потока целиком
+ * в буфер, поэтому исходный поток не обязан быть буферизованным; ничего сверх кадра из него не читается.
+ */
+public class ChunkedInputStream extends InputStream {
+
+    private final InputStream in;
+    private byte[] buffer = new byte[0];
+    private int position;
+    private int limit;
+    private boolean finished;
+
+    public ChunkedInputStream(InputStream in) {
+        this.in = in;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, limit - position);
+        System.arraycopy(buffer, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    /**
+     * Дочитывает кадр до маркера конца, пропуская непрочитанные данные
+     */
+    public void finish() throws IOException {
+        while (!finished) {
+            position = limit;
+            readChunk();
+        }
+    }
+
+    private boolean fill() throws IOException {
+        while (position == limit) {
+            if (finished) {
+                return false;
+            }
+            readChunk();
+        }
+        return true;
+    }
+
+    private void readChunk() throws IOException {
+        int length = readLength();
+        position = 0;
+        limit = 0;
+        if (length == 0) {
+            finished = true;
+            return;
+        }
+        if (buffer.length < length) {
+            buffer = new byte[length];
+        }
+        int n = 0;
+        while (n < length) {
+            int read = in.read(buffer, n, length - n);
+            if (read < 0) {
+                throw new EOFException("Chunk is truncated");
+            }
+            n += read;
+        }
+        limit = length;
+    }
+
+    private int readLength() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 7 * ChunkedOutputStream.MAX_HEADER_SIZE; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Chunked frame is not finished");
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    throw new StreamCorruptedException("Negative chunk length " + value);
+                }
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Malformed chunk length");
+    }
+}
@@ -0,0 +1,125 @@
+package com.pkm.userialization.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Поток, записывающий данные кадром из кусков: каждый кусок - varint-длина и данные, кадр завершается
+ * куском нулевой длины. Данные накапливаются в буфере, и каждый кусок вместе с длиной передается
+ * в исходный поток одним вызовом. Кадр читается {@link ChunkedInputStream} целыми кусками,
+ * не заходя за конец кадра.
+ * Кадр завершается методом {@link #finish()}; исходный поток не закрывается.
+ */
+public class ChunkedOutputStream extends OutputStream {
+
+    static final int MAX_HEADER_SIZE = 5;
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private final int limit;
+    private int count = MAX_HEADER_SIZE;
+    private boolean finished;
+
+    /**
+     * @param chunkSize наибольший размер данных одного куска
+     */
+    public ChunkedOutputStream(OutputStream out, int chunkSize) {
+        this.out = out;
+        this.limit = MAX_HEADER_SIZE + chunkSize;
+        this.buffer = new byte[limit + 1];
+    }
+
+    /**
+     * Записывает готовые данные кадром из одного куска
+     */
+    public static void writeFrame(OutputStream out, byte[] b, int off, int len) throws IOException {
+        if (len > 0) {
+            byte[] header = new byte[MAX_HEADER_SIZE];
+            int start = putLength(header, MAX_HEADER_SIZE, len);
+            out.write(header, start, MAX_HEADER_SIZE - start);
+            out.write(b, off, len);
+        }
+        out.write(0);
+        out.flush();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == limit) {
+            writeChunk(false);
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (count == limit) {
+                writeChunk(false);
+            }
+            int n = Math.min(len, limit - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Записывает накопленные данные отдельным куском и сбрасывает исходный поток
+     */
+    @Override
+    public void flush() throws IOException {
+        writeChunk(false);
+        out.flush();
+    }
+
+    /**
+     * Записывает последний кусок вместе с маркером конца кадра. Исходный поток не закрывается.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        writeChunk(true);
+        out.flush();
+        finished = true;
+    }
+
+    /**
+     * Длина записывается в буфер прямо перед данными, маркер конца кадра - сразу после них
+     */
+    private void writeChunk(boolean last) throws IOException {
+        int length = count - MAX_HEADER_SIZE;
+        if (length == 0) {
+            if (last) {
+                out.write(0);
+            }
+            return;
+        }
+        int start = putLength(buffer, MAX_HEADER_SIZE, length);
+        int end = count;
+        if (last) {
+            buffer[end++] = 0;
+        }
+        out.write(buffer, start, end - start);
+        count = MAX_HEADER_SIZE;
+    }
+
+    /**
+     * Записывает varint-длину так, чтобы она заканчивалась перед end; возвращает ее начало
+     */
+    private static int putLength(byte[] target, int end, int length) {
+        int size = 1;
+        for (int rest = length >>> 7; rest != 0; rest >>>= 7) {
+            size++;
+        }
+        int position = end - size;
+        for (int i = position; i < end - 1; i++) {
+            target[i] = (byte) ((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        target[end - 1] = (byte) length;
+        return position;
+    }
+}
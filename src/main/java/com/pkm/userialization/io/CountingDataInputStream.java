@@ -0,0 +1,23 @@
+package com.pkm.userialization.io;
+
+import com.google.common.io.CountingInputStream;
+
+import java.io.DataInputStream;
+import java.io.InputStream;
+
+/**
+ * {@link DataInputStream}, считающий прочитанные байты. Не читает из исходного потока ничего сверх запрошенного.
+ */
+public class CountingDataInputStream extends DataInputStream {
+
+    public CountingDataInputStream(InputStream in) {
+        super(new CountingInputStream(in));
+    }
+
+    /**
+     * Сколько байт прочитано (или пропущено) с момента создания
+     */
+    public long getCount() {
+        return ((CountingInputStream) in).getCount();
+    }
+}
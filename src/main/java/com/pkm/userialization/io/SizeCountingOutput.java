@@ -0,0 +1,107 @@
+package com.pkm.userialization.io;
+
+import java.io.DataOutput;
+import java.io.OutputStream;
+import java.io.UTFDataFormatException;
+
+/**
+ * {@link DataOutput}, который ничего не записывает, а только считает байты, которые записал бы
+ * {@link java.io.DataOutputStream}. Строки writeUTF не кодируются: считается только длина их кодировки.
+ */
+public class SizeCountingOutput extends OutputStream implements DataOutput {
+
+    private static final int MAX_UTF_LENGTH = 65535;
+
+    private long size;
+
+    /**
+     * Сколько байт было бы записано
+     */
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public void write(int b) {
+        size++;
+    }
+
+    @Override
+    public void write(byte[] b) {
+        size += b.length;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        size += len;
+    }
+
+    @Override
+    public void writeBoolean(boolean v) {
+        size++;
+    }
+
+    @Override
+    public void writeByte(int v) {
+        size++;
+    }
+
+    @Override
+    public void writeShort(int v) {
+        size += Short.BYTES;
+    }
+
+    @Override
+    public void writeChar(int v) {
+        size += Character.BYTES;
+    }
+
+    @Override
+    public void writeInt(int v) {
+        size += Integer.BYTES;
+    }
+
+    @Override
+    public void writeLong(long v) {
+        size += Long.BYTES;
+    }
+
+    @Override
+    public void writeFloat(float v) {
+        size += Float.BYTES;
+    }
+
+    @Override
+    public void writeDouble(double v) {
+        size += Double.BYTES;
+    }
+
+    @Override
+    public void writeBytes(String s) {
+        size += s.length();
+    }
+
+    @Override
+    public void writeChars(String s) {
+        size += (long) s.length() * Character.BYTES;
+    }
+
+    @Override
+    public void writeUTF(String s) throws UTFDataFormatException {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                length++;
+            } else if (c <= 0x07FF) {
+                length += 2;
+            } else {
+                length += 3;
+            }
+        }
+        if (length > MAX_UTF_LENGTH) {
+            throw new UTFDataFormatException("Encoded string too long: " + length + " bytes");
+        }
+        size += Short.BYTES + length;
+    }
+}
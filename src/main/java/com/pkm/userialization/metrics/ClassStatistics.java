@@ -0,0 +1,35 @@
+package com.pkm.userialization.metrics;
+
+import lombok.Getter;
+
+/**
+ * Снимок счетчиков одного класса. Байты и время включают вложенные значения.
+ */
+@Getter
+public final class ClassStatistics {
+
+    private final String type;
+    private final long written;
+    private final long bytesWritten;
+    private final long writeNanos;
+    private final long read;
+    private final long bytesRead;
+    private final long readNanos;
+
+    public ClassStatistics(String type, long written, long bytesWritten, long writeNanos,
+                           long read, long bytesRead, long readNanos) {
+        this.type = type;
+        this.written = written;
+        this.bytesWritten = bytesWritten;
+        this.writeNanos = writeNanos;
+        this.read = read;
+        this.bytesRead = bytesRead;
+        this.readNanos = readNanos;
+    }
+
+    @Override
+    public String toString() {
+        return type + ": written " + written + " (" + bytesWritten + " bytes, " + writeNanos / 1000 + " us), read "
+                + read + " (" + bytesRead + " bytes, " + readNanos / 1000 + " us)";
+    }
+}
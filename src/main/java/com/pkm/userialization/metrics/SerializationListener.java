@@ -0,0 +1,42 @@
+package com.pkm.userialization.metrics;
+
+/**
+ * Получатель событий сериализации, задается в {@link com.pkm.userialization.serializer.SerializerConfig}.
+ * Без получателя события не вычисляются. Методы вызываются из потоков сериализации (в том числе параллельно),
+ * поэтому должны быть быстрыми и потокобезопасными.
+ * <p>
+ * Размер и время значения включают вложенные значения, но не заголовок самого значения (имя или номер класса).
+ * Глубина корневого значения - 1.
+ */
+public interface SerializationListener {
+
+    /**
+     * Значение записано
+     * @param bytes записанные байты (до сжатия)
+     * @param nanos время записи
+     */
+    default void valueWritten(Class<?> type, long bytes, long nanos) {
+    }
+
+    /**
+     * Значение прочитано (экземпляр создан)
+     * @param bytes прочитанные байты (после распаковки)
+     * @param nanos время чтения
+     */
+    default void valueRead(Class<?> type, long bytes, long nanos) {
+    }
+
+    /**
+     * Корневое значение потока или записи пакета записано
+     * @param depth наибольшая глубина вложенности значений
+     */
+    default void payloadWritten(Class<?> type, long bytes, int depth) {
+    }
+
+    /**
+     * Корневое значение потока или записи пакета прочитано
+     * @param depth наибольшая глубина вложенности значений
+     */
+    default void payloadRead(Class<?> type, long bytes, int depth) {
+    }
+}
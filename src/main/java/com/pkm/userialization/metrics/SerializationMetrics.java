@@ -0,0 +1,168 @@
+package com.pkm.userialization.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Накопитель метрик: по классам - число записанных и прочитанных значений, байты и время; по корневым
+ * значениям - число, наибольшая глубина и гистограмма размеров. Счетчики потокобезопасны и не блокируют.
+ * Может быть зарегистрирован как MBean методом {@link #register(String)}.
+ */
+public class SerializationMetrics implements SerializationListener, SerializationMetricsMXBean {
+
+    private static final String DOMAIN = "com.pkm.userialization";
+    private static final int HISTOGRAM_SIZE = 64;
+
+    private final Map<Class<?>, Counters> counters = new ConcurrentHashMap<>();
+    private final Payloads written = new Payloads();
+    private final Payloads read = new Payloads();
+
+    @Override
+    public void valueWritten(Class<?> type, long bytes, long nanos) {
+        Counters c = countersOf(type);
+        c.written.increment();
+        c.bytesWritten.add(bytes);
+        c.writeNanos.add(nanos);
+    }
+
+    @Override
+    public void valueRead(Class<?> type, long bytes, long nanos) {
+        Counters c = countersOf(type);
+        c.read.increment();
+        c.bytesRead.add(bytes);
+        c.readNanos.add(nanos);
+    }
+
+    @Override
+    public void payloadWritten(Class<?> type, long bytes, int depth) {
+        written.add(bytes, depth);
+    }
+
+    @Override
+    public void payloadRead(Class<?> type, long bytes, int depth) {
+        read.add(bytes, depth);
+    }
+
+    @Override
+    public List<ClassStatistics> getClassStatistics() {
+        List<ClassStatistics> statistics = new ArrayList<>(counters.size());
+        counters.forEach((type, c) -> statistics.add(new ClassStatistics(type.getName(),
+                c.written.sum(), c.bytesWritten.sum(), c.writeNanos.sum(),
+                c.read.sum(), c.bytesRead.sum(), c.readNanos.sum())));
+        statistics.sort(Comparator.comparingLong(ClassStatistics::getBytesWritten).reversed());
+        return statistics;
+    }
+
+    @Override
+    public long getPayloadsWritten() {
+        return written.count.sum();
+    }
+
+    @Override
+    public long getPayloadsRead() {
+        return read.count.sum();
+    }
+
+    @Override
+    public int getMaxWrittenDepth() {
+        return (int) written.maxDepth.get();
+    }
+
+    @Override
+    public int getMaxReadDepth() {
+        return (int) read.maxDepth.get();
+    }
+
+    @Override
+    public long[] getWrittenPayloadHistogram() {
+        return written.histogram();
+    }
+
+    @Override
+    public long[] getReadPayloadHistogram() {
+        return read.histogram();
+    }
+
+    @Override
+    public void reset() {
+        counters.clear();
+        written.reset();
+        read.reset();
+    }
+
+    /**
+     * Регистрирует метрики в платформенном MBeanServer под именем
+     * {@code com.pkm.userialization:type=SerializationMetrics,name=<name>}
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName(DOMAIN + ":type=SerializationMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    public void unregister(ObjectName objectName) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+    }
+
+    private Counters countersOf(Class<?> type) {
+        Counters c = counters.get(type);
+        return c != null ? c : counters.computeIfAbsent(type, t -> new Counters());
+    }
+
+    private static final class Counters {
+        final LongAdder written = new LongAdder();
+        final LongAdder bytesWritten = new LongAdder();
+        final LongAdder writeNanos = new LongAdder();
+        final LongAdder read = new LongAdder();
+        final LongAdder bytesRead = new LongAdder();
+        final LongAdder readNanos = new LongAdder();
+    }
+
+    private static final class Payloads {
+        final LongAdder count = new LongAdder();
+        final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+        final AtomicLongArray sizes = new AtomicLongArray(HISTOGRAM_SIZE);
+
+        void add(long bytes, int depth) {
+            count.increment();
+            maxDepth.accumulate(depth);
+            sizes.incrementAndGet(HISTOGRAM_SIZE - Long.numberOfLeadingZeros(bytes));
+        }
+
+        /**
+         * Гистограмма без пустых старших интервалов
+         */
+        long[] histogram() {
+            int length = HISTOGRAM_SIZE;
+            while (length > 0 && sizes.get(length - 1) == 0) {
+                length--;
+            }
+            long[] histogram = new long[length];
+            for (int i = 0; i < length; i++) {
+                histogram[i] = sizes.get(i);
+            }
+            return histogram;
+        }
+
+        void reset() {
+            count.reset();
+            maxDepth.reset();
+            for (int i = 0; i < HISTOGRAM_SIZE; i++) {
+                sizes.set(i, 0);
+            }
+        }
+    }
+}
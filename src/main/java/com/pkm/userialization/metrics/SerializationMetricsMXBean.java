@@ -0,0 +1,38 @@
+package com.pkm.userialization.metrics;
+
+import java.util.List;
+
+/**
+ * Интерфейс управления {@link SerializationMetrics} для JMX
+ */
+public interface SerializationMetricsMXBean {
+
+    /**
+     * Статистика по классам, по убыванию записанных байт
+     */
+    List<ClassStatistics> getClassStatistics();
+
+    long getPayloadsWritten();
+
+    long getPayloadsRead();
+
+    int getMaxWrittenDepth();
+
+    int getMaxReadDepth();
+
+    /**
+     * Гистограмма размеров записанных корневых значений: элемент i - число значений размером
+     * от 2^(i-1) до 2^i - 1 байт, элемент 0 - пустых значений
+     */
+    long[] getWrittenPayloadHistogram();
+
+    /**
+     * Гистограмма размеров прочитанных корневых значений, см. {@link #getWrittenPayloadHistogram()}
+     */
+    long[] getReadPayloadHistogram();
+
+    /**
+     * Обнуляет все счетчики
+     */
+    void reset();
+}
@@ -0,0 +1,16 @@
+package com.pkm.userialization.resolver;
+
+import java.io.IOException;
+
+/**
+ * Поиск класса по имени, записанному в потоке, при десериализации.
+ * Вызывается для каждого прочитанного имени класса, поэтому должен быть быстрым и потокобезопасным.
+ */
+@FunctionalInterface
+public interface ClassResolver {
+
+    /**
+     * @throws java.io.InvalidClassException если класс запрещено читать
+     */
+    Class<?> resolve(String className) throws IOException, ClassNotFoundException;
+}
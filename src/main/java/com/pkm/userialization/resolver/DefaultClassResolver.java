@@ -0,0 +1,65 @@
+package com.pkm.userialization.resolver;
+
+import java.io.InvalidClassException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Загружает классы указанным загрузчиком и запоминает найденные по имени, так что {@link Class#forName}
+ * вызывается не больше одного раза на имя. Кэш принадлежит экземпляру, поэтому на каждый загрузчик
+ * (например, на каждое приложение сервера) нужен свой экземпляр.
+ * <p>
+ * Фильтр имен проверяется до загрузки класса, один раз на имя: запрещенный класс не загружается и не
+ * инициализируется. Классы загружаются без инициализации, как в {@link java.io.ObjectInputStream}.
+ * Имена примитивов разрешаются без фильтра.
+ */
+public class DefaultClassResolver implements ClassResolver {
+
+    private static final Class<?>[] PRIMITIVES = {
+            byte.class, short.class, int.class, long.class, float.class, double.class, char.class, boolean.class
+    };
+
+    /**
+     * Загрузчик классов библиотеки, без ограничений
+     */
+    public static final DefaultClassResolver INSTANCE = new DefaultClassResolver(DefaultClassResolver.class.getClassLoader());
+
+    private final ClassLoader classLoader;
+    private final Predicate<String> allowed;
+    private final Map<String, Class<?>> classes = new ConcurrentHashMap<>();
+
+    public DefaultClassResolver(ClassLoader classLoader) {
+        this(classLoader, className -> true);
+    }
+
+    /**
+     * @param allowed фильтр имен классов (в формате {@link Class#getName()}, в том числе массивов),
+     *                которые разрешено читать
+     */
+    public DefaultClassResolver(ClassLoader classLoader, Predicate<String> allowed) {
+        this.classLoader = classLoader;
+        this.allowed = allowed;
+        for (Class<?> primitive : PRIMITIVES) {
+            classes.put(primitive.getName(), primitive);
+        }
+    }
+
+    @Override
+    public Class<?> resolve(String className) throws InvalidClassException, ClassNotFoundException {
+        Class<?> clazz = classes.get(className);
+        if (clazz != null) {
+            return clazz;
+        }
+        if (!allowed.test(className)) {
+            throw new InvalidClassException(className, "Class is not allowed");
+        }
+        clazz = Class.forName(className, false, classLoader);
+        classes.putIfAbsent(className, clazz);
+        return clazz;
+    }
+
+    public ClassLoader getClassLoader() {
+        return classLoader;
+    }
+}
@@ -0,0 +1,68 @@
+package com.pkm.userialization.serializer;
+
+import com.pkm.userialization.io.BlockDecompressingInputStream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+/**
+ * Последовательное чтение записей пакета, записанного {@link ObjectSerializer#serializeBatch(java.util.List)}.
+ * Записи декодируются по одной по мере вызова {@link #next()}. Не потокобезопасен.
+ * После чтения читатель нужно закрыть: для сжатого пакета {@link #close()} освобождает распаковщик.
+ */
+public final class BatchReader implements Closeable {
+
+    private final ObjectSerializerImpl serializer;
+    private final DeserializationContext ctx;
+    private final int size;
+    private int index;
+
+    /**
+     * Распаковка сжатого пакета; null, если пакет не сжат
+     */
+    private final BlockDecompressingInputStream decompressing;
+
+    BatchReader(ObjectSerializerImpl serializer, DeserializationContext ctx,
+                BlockDecompressingInputStream decompressing) throws IOException {
+        this.serializer = serializer;
+        this.ctx = ctx;
+        this.decompressing = decompressing;
+        this.size = ctx.readSize();
+    }
+
+    /**
+     * Количество записей в пакете
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean hasNext() {
+        return index < size;
+    }
+
+    /**
+     * Читает следующую запись
+     * @throws NoSuchElementException если записи закончились
+     */
+    public Object next() throws IOException, ReflectiveOperationException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Object obj = serializer.readObject(ctx);
+        ctx.resetReferences();
+        index++;
+        return obj;
+    }
+
+    /**
+     * Освобождает распаковщик сжатого пакета. Буфер, из которого читается пакет, не затрагивается.
+     */
+    @Override
+    public void close() {
+        if (decompressing != null) {
+            decompressing.close();
+        }
+    }
+}
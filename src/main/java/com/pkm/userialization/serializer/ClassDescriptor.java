@@ -0,0 +1,156 @@
+package com.pkm.userialization.serializer;
+
+import com.google.common.primitives.Primitives;
+import com.pkm.userialization.utils.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Описание класса, необходимое для сериализации: вид значения и упорядоченный список полей.
+ * Вычисляется один раз на класс и кэшируется.
+ */
+public final class ClassDescriptor {
+
+    /**
+     * Вид сериализуемого значения
+     */
+    public enum Kind {
+        PRIMITIVE,
+        WRAPPER,
+        STRING,
+        ARRAY,
+        ENUM,
+        MAP,
+        COLLECTION,
+        POJO
+    }
+
+    private static final ClassValue<ClassDescriptor> CACHE = new ClassValue<ClassDescriptor>() {
+        @Override
+        protected ClassDescriptor computeValue(Class<?> type) {
+            Class<?> enumType = enumTypeOf(type);
+            return enumType != type ? get(enumType) : new ClassDescriptor(type);
+        }
+    };
+
+    private final Class<?> type;
+    private final Kind kind;
+    private final Class<?> primitiveType;
+    private final Field[] fields;
+    private final FieldAccessor[] accessors;
+    private final Object[] enumConstants;
+
+    private ClassDescriptor(Class<?> type) {
+        this.type = type;
+        this.kind = kindOf(type);
+        this.primitiveType = type.isPrimitive() ? type : Primitives.unwrap(type);
+
+        List<Field> fieldList;
+        if (kind == Kind.POJO) {
+            fieldList = ReflectionUtils.getAllNonStaticFields(type);
+        } else if (kind == Kind.ENUM) {
+            fieldList = ReflectionUtils.getNonStaticDeclaredFields(type);
+        } else {
+            fieldList = Collections.emptyList();
+        }
+        this.enumConstants = kind == Kind.ENUM ? type.getEnumConstants() : null;
+        this.fields = fieldList.toArray(new Field[0]);
+        this.accessors = new FieldAccessor[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            try {
+                accessors[i] = FieldAccessor.of(fields[i]);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot access field " + fields[i], e);
+            }
+        }
+    }
+
+    /**
+     * Возвращает описание указанного класса. Потокобезопасно.
+     * Для константы перечисления с телом возвращается описание самого перечисления.
+     */
+    public static ClassDescriptor of(Class<?> clazz) {
+        return CACHE.get(clazz);
+    }
+
+    /**
+     * Класс перечисления для класса константы с телом (анонимного подкласса перечисления),
+     * как {@link Enum#getDeclaringClass()}; для остальных классов - сам класс
+     */
+    static Class<?> enumTypeOf(Class<?> clazz) {
+        if (clazz != Enum.class && !clazz.isEnum() && Enum.class.isAssignableFrom(clazz)) {
+            return clazz.getSuperclass();
+        }
+        return clazz;
+    }
+
+    private static Kind kindOf(Class<?> clazz) {
+        if (clazz.isPrimitive()) {
+            return Kind.PRIMITIVE;
+        } else if (Primitives.isWrapperType(clazz)) {
+            return Kind.WRAPPER;
+        } else if (clazz == String.class) {
+            return Kind.STRING;
+        } else if (clazz.isArray()) {
+            return Kind.ARRAY;
+        } else if (clazz.isEnum()) {
+            return Kind.ENUM;
+        } else if (Map.class.isAssignableFrom(clazz)) {
+            return Kind.MAP;
+        } else if (Collection.class.isAssignableFrom(clazz)) {
+            return Kind.COLLECTION;
+        } else {
+            return Kind.POJO;
+        }
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Возвращает true для значений без идентичности: примитивов, оберток, строк и перечислений
+     */
+    public boolean isValueType() {
+        return kind == Kind.PRIMITIVE || kind == Kind.WRAPPER || kind == Kind.STRING || kind == Kind.ENUM;
+    }
+
+    /**
+     * Примитивный тип для примитивов и их оберток, иначе сам класс
+     */
+    public Class<?> getPrimitiveType() {
+        return primitiveType;
+    }
+
+    /**
+     * Константы перечисления в порядке их номеров (ordinal), для остальных классов null.
+     * Массив общий для всех вызовов и не должен изменяться.
+     */
+    public Object[] getEnumConstants() {
+        return enumConstants;
+    }
+
+    /**
+     * Доступные (accessible) нестатические поля в порядке сериализации.
+     * Массив общий для всех вызовов и не должен изменяться.
+     */
+    public Field[] getFields() {
+        return fields;
+    }
+
+    /**
+     * Accessor-ы полей в том же порядке, что и {@link #getFields()}.
+     * Массив общий для всех вызовов и не должен изменяться.
+     */
+    public FieldAccessor[] getAccessors() {
+        return accessors;
+    }
+}
@@ -0,0 +1,209 @@
+package com.pkm.userialization.serializer;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Создание коллекций и map при чтении.
+ * <p>
+ * Распространенные изменяемые коллекции JDK создаются конструктором с емкостью под известный размер,
+ * без рефлексии и без перехеширования при заполнении (если стратегия создания экземпляров не переопределена).
+ * Обертки и неизменяемые коллекции JDK ({@code Collections.unmodifiable*}, {@code synchronized*}, {@code empty*}, {@code singleton*},
+ * {@code Arrays.asList}, {@code List.of}, {@code Set.of}, {@code Map.of}) читаются в изменяемый контейнер,
+ * из которого затем строится значение того же вида. Такое значение становится доступно для ссылок только
+ * после чтения элементов, поэтому элементы не могут ссылаться на саму обертку.
+ * Остальные классы создаются стратегией создания экземпляров.
+ */
+final class CollectionFactory {
+
+    /**
+     * Создание экземпляра стратегией и чтение элементов прямо в него
+     */
+    static final CollectionFactory DEFAULT = new CollectionFactory(null, null);
+
+    private static final Map<Class<?>, CollectionFactory> FACTORIES = new HashMap<>();
+
+    private static final ClassValue<CollectionFactory> CACHE = new ClassValue<CollectionFactory>() {
+        @Override
+        protected CollectionFactory computeValue(Class<?> type) {
+            return FACTORIES.getOrDefault(type, DEFAULT);
+        }
+    };
+
+    static {
+        mutable(ArrayList.class, Lists::newArrayListWithCapacity);
+        mutable(LinkedList.class, size -> new LinkedList<>());
+        mutable(ArrayDeque.class, ArrayDeque::new);
+        mutable(Vector.class, Vector::new);
+        mutable(HashSet.class, Sets::newHashSetWithExpectedSize);
+        mutable(LinkedHashSet.class, Sets::newLinkedHashSetWithExpectedSize);
+        mutable(TreeSet.class, size -> new TreeSet<>());
+        mutable(HashMap.class, Maps::newHashMapWithExpectedSize);
+        mutable(LinkedHashMap.class, Maps::newLinkedHashMapWithExpectedSize);
+        mutable(TreeMap.class, size -> new TreeMap<>());
+        mutable(IdentityHashMap.class, IdentityHashMap::new);
+        mutable(ConcurrentHashMap.class, ConcurrentHashMap::new);
+
+        List<Object> list = Lists.newArrayList(1);
+        Set<Object> set = Sets.newHashSet(1);
+        Map<Object, Object> map = Collections.singletonMap(1, 1);
+        NavigableSet<Object> navigableSet = new TreeSet<>(set);
+        NavigableMap<Object, Object> navigableMap = new TreeMap<>(map);
+
+        IntFunction<List<Object>> arrayList = Lists::newArrayListWithCapacity;
+        IntFunction<List<Object>> linkedList = size -> new LinkedList<>();
+        IntFunction<Set<Object>> linkedHashSet = Sets::newLinkedHashSetWithExpectedSize;
+        IntFunction<NavigableSet<Object>> treeSet = size -> new TreeSet<>();
+        IntFunction<Map<Object, Object>> linkedHashMap = Maps::newLinkedHashMapWithExpectedSize;
+        IntFunction<NavigableMap<Object, Object>> treeMap = size -> new TreeMap<>();
+
+        wrapper(Collections.unmodifiableCollection(list), arrayList, Collections::unmodifiableCollection);
+        wrapper(Collections.unmodifiableList(list), arrayList, Collections::unmodifiableList);
+        wrapper(Collections.unmodifiableList(new LinkedList<>()), linkedList, Collections::unmodifiableList);
+        wrapper(Collections.unmodifiableSet(set), linkedHashSet, Collections::unmodifiableSet);
+        wrapper(Collections.unmodifiableSortedSet(navigableSet), treeSet, Collections::unmodifiableSortedSet);
+        wrapper(Collections.unmodifiableNavigableSet(navigableSet), treeSet, Collections::unmodifiableNavigableSet);
+        wrapper(Collections.unmodifiableMap(map), linkedHashMap, Collections::unmodifiableMap);
+        wrapper(Collections.unmodifiableSortedMap(navigableMap), treeMap, Collections::unmodifiableSortedMap);
+        wrapper(Collections.unmodifiableNavigableMap(navigableMap), treeMap, Collections::unmodifiableNavigableMap);
+
+        wrapper(Collections.synchronizedCollection(list), arrayList, Collections::synchronizedCollection);
+        wrapper(Collections.synchronizedList(list), arrayList, Collections::synchronizedList);
+        wrapper(Collections.synchronizedList(new LinkedList<>()), linkedList, Collections::synchronizedList);
+        wrapper(Collections.synchronizedSet(set), linkedHashSet, Collections::synchronizedSet);
+        wrapper(Collections.synchronizedSortedSet(navigableSet), treeSet, Collections::synchronizedSortedSet);
+        wrapper(Collections.synchronizedNavigableSet(navigableSet), treeSet, Collections::synchronizedNavigableSet);
+        wrapper(Collections.synchronizedMap(map), linkedHashMap, Collections::synchronizedMap);
+        wrapper(Collections.synchronizedSortedMap(navigableMap), treeMap, Collections::synchronizedSortedMap);
+        wrapper(Collections.synchronizedNavigableMap(navigableMap), treeMap, Collections::synchronizedNavigableMap);
+
+        wrapper(Collections.emptyList(), arrayList, container -> Collections.emptyList());
+        wrapper(Collections.emptySet(), arrayList, container -> Collections.emptySet());
+        wrapper(Collections.emptyMap(), linkedHashMap, container -> Collections.emptyMap());
+        wrapper(Collections.singletonList(1), arrayList, container -> Collections.singletonList(container.get(0)));
+        wrapper(Collections.singleton(1), arrayList, container -> Collections.singleton(container.get(0)));
+        wrapper(map, linkedHashMap, container -> {
+            Map.Entry<Object, Object> entry = container.entrySet().iterator().next();
+            return Collections.singletonMap(entry.getKey(), entry.getValue());
+        });
+        wrapper(Arrays.asList(1), arrayList, container -> Arrays.asList(container.toArray()));
+
+        immutableCollections();
+    }
+
+    private final IntFunction<Object> container;
+    private final Function<Object, Object> finisher;
+
+    private CollectionFactory(IntFunction<Object> container, Function<Object, Object> finisher) {
+        this.container = container;
+        this.finisher = finisher;
+    }
+
+    /**
+     * Возвращает способ создания для указанного класса коллекции или map. Потокобезопасно.
+     */
+    static CollectionFactory of(Class<?> type) {
+        return CACHE.get(type);
+    }
+
+    /**
+     * Возвращает false, если экземпляр нужно создать стратегией
+     */
+    boolean hasContainer() {
+        return container != null;
+    }
+
+    /**
+     * Изменяемый контейнер емкостью под size элементов (или записей map)
+     */
+    Object newContainer(int size) {
+        return container.apply(size);
+    }
+
+    /**
+     * Возвращает true, если итоговое значение строится из контейнера после чтения элементов
+     */
+    boolean isWrapper() {
+        return finisher != null;
+    }
+
+    /**
+     * Строит итоговое значение из заполненного контейнера
+     */
+    Object build(Object filled) {
+        return finisher == null ? filled : finisher.apply(filled);
+    }
+
+    private static void mutable(Class<?> type, IntFunction<Object> container) {
+        FACTORIES.put(type, new CollectionFactory(container, null));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void wrapper(Object sample, IntFunction<T> container, Function<T, ?> finisher) {
+        FACTORIES.put(sample.getClass(), new CollectionFactory((IntFunction<Object>) container,
+                (Function<Object, Object>) finisher));
+    }
+
+    /**
+     * Неизменяемые коллекции Java 9+ ({@code List.of} и т.п.). Классы и фабричные методы находятся
+     * рефлексией, на Java 8 их нет и регистрация пропускается.
+     */
+    private static void immutableCollections() {
+        Method listOf;
+        Method setOf;
+        Method mapOfEntries;
+        try {
+            listOf = List.class.getMethod("of", Object[].class);
+            setOf = Set.class.getMethod("of", Object[].class);
+            mapOfEntries = Map.class.getMethod("ofEntries", Map.Entry[].class);
+        } catch (NoSuchMethodException e) {
+            return;
+        }
+        IntFunction<List<Object>> arrayList = Lists::newArrayListWithCapacity;
+        IntFunction<Map<Object, Object>> linkedHashMap = Maps::newLinkedHashMapWithExpectedSize;
+        Function<List<Object>, Object> list = container -> container.contains(null)
+                ? Collections.unmodifiableList(container)
+                : invoke(listOf, container.toArray());
+        Function<List<Object>, Object> set = container -> invoke(setOf, container.toArray());
+        Function<Map<Object, Object>, Object> map = container -> {
+            List<Map.Entry<Object, Object>> entries = new ArrayList<>(container.size());
+            for (Map.Entry<Object, Object> entry : container.entrySet()) {
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+            }
+            return invoke(mapOfEntries, entries.toArray(new Map.Entry<?, ?>[0]));
+        };
+        for (int size = 0; size <= 3; size++) {
+            Object[] elements = new Object[size];
+            Map.Entry<?, ?>[] entries = new Map.Entry<?, ?>[size];
+            for (int i = 0; i < size; i++) {
+                elements[i] = i;
+                entries[i] = new AbstractMap.SimpleImmutableEntry<>(i, i);
+            }
+            List<?> sample = (List<?>) invoke(listOf, elements);
+            wrapper(sample, arrayList, list);
+            if (size > 1) {
+                wrapper(sample.subList(1, size), arrayList, list);
+            }
+            wrapper(invoke(setOf, elements), arrayList, set);
+            wrapper(invoke(mapOfEntries, entries), linkedHashMap, map);
+        }
+    }
+
+    private static Object invoke(Method factory, Object[] arguments) {
+        try {
+            return factory.invoke(null, (Object) arguments);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalArgumentException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.pkm.userialization.serializer;
+
+import com.pkm.userialization.utils.VarInts;
+
+import java.io.DataInput;
+import java.io.IOException;
+
+/**
+ * {@link TypeInput} поверх контекста чтения. Создается один раз на контекст, см.
+ * {@link DeserializationContext#typeInput(ObjectSerializerImpl)}.
+ */
+final class ContextInput implements TypeInput {
+
+    private final ObjectSerializerImpl serializer;
+    private final DeserializationContext ctx;
+    private final DataInput in;
+
+    ContextInput(ObjectSerializerImpl serializer, DeserializationContext ctx) {
+        this.serializer = serializer;
+        this.ctx = ctx;
+        this.in = ctx.in;
+    }
+
+    @Override
+    public int readVarInt() throws IOException {
+        return VarInts.readVarInt(in);
+    }
+
+    @Override
+    public long readVarLong() throws IOException {
+        return VarInts.readVarLong(in);
+    }
+
+    @Override
+    public int readSize() throws IOException {
+        return ctx.readSize();
+    }
+
+    @Override
+    public String readString() throws IOException {
+        return ctx.readString();
+    }
+
+    @Override
+    public Object readObject() throws IOException, ReflectiveOperationException {
+        return serializer.readObject(ctx);
+    }
+
+    @Override
+    public void readFully(byte[] b) throws IOException {
+        in.readFully(b);
+    }
+
+    @Override
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        in.readFully(b, off, len);
+    }
+
+    @Override
+    public int skipBytes(int n) throws IOException {
+        return in.skipBytes(n);
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException {
+        return in.readBoolean();
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        return in.readByte();
+    }
+
+    @Override
+    public int readUnsignedByte() throws IOException {
+        return in.readUnsignedByte();
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        return in.readShort();
+    }
+
+    @Override
+    public int readUnsignedShort() throws IOException {
+        return in.readUnsignedShort();
+    }
+
+    @Override
+    public char readChar() throws IOException {
+        return in.readChar();
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        return in.readInt();
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        return in.readLong();
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        return in.readFloat();
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        return in.readDouble();
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        return in.readLine();
+    }
+
+    @Override
+    public String readUTF() throws IOException {
+        return in.readUTF();
+    }
+}
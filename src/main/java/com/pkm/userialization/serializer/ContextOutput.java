@@ -0,0 +1,118 @@
+package com.pkm.userialization.serializer;
+
+import com.pkm.userialization.utils.VarInts;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * {@link TypeOutput} поверх контекста записи. Создается один раз на контекст, см.
+ * {@link SerializationContext#typeOutput(ObjectSerializerImpl)}.
+ */
+final class ContextOutput implements TypeOutput {
+
+    private final ObjectSerializerImpl serializer;
+    private final SerializationContext ctx;
+    private final DataOutput out;
+
+    ContextOutput(ObjectSerializerImpl serializer, SerializationContext ctx) {
+        this.serializer = serializer;
+        this.ctx = ctx;
+        this.out = ctx.out;
+    }
+
+    @Override
+    public void writeVarInt(int value) throws IOException {
+        VarInts.writeVarInt(out, value);
+    }
+
+    @Override
+    public void writeVarLong(long value) throws IOException {
+        VarInts.writeVarLong(out, value);
+    }
+
+    @Override
+    public void writeSize(int size) throws IOException {
+        ctx.writeSize(size);
+    }
+
+    @Override
+    public void writeString(String s) throws IOException {
+        ctx.writeString(s);
+    }
+
+    @Override
+    public void writeObject(Object obj) throws IOException, ReflectiveOperationException {
+        serializer.writeObject(obj, ctx);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b) throws IOException {
+        out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+    }
+
+    @Override
+    public void writeBoolean(boolean v) throws IOException {
+        out.writeBoolean(v);
+    }
+
+    @Override
+    public void writeByte(int v) throws IOException {
+        out.writeByte(v);
+    }
+
+    @Override
+    public void writeShort(int v) throws IOException {
+        out.writeShort(v);
+    }
+
+    @Override
+    public void writeChar(int v) throws IOException {
+        out.writeChar(v);
+    }
+
+    @Override
+    public void writeInt(int v) throws IOException {
+        out.writeInt(v);
+    }
+
+    @Override
+    public void writeLong(long v) throws IOException {
+        out.writeLong(v);
+    }
+
+    @Override
+    public void writeFloat(float v) throws IOException {
+        out.writeFloat(v);
+    }
+
+    @Override
+    public void writeDouble(double v) throws IOException {
+        out.writeDouble(v);
+    }
+
+    @Override
+    public void writeBytes(String s) throws IOException {
+        out.writeBytes(s);
+    }
+
+    @Override
+    public void writeChars(String s) throws IOException {
+        out.writeChars(s);
+    }
+
+    @Override
+    public void writeUTF(String s) throws IOException {
+        out.writeUTF(s);
+    }
+}
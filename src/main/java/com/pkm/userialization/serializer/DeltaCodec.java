@@ -0,0 +1,434 @@
+package com.pkm.userialization.serializer;
+
+import com.pkm.userialization.io.ByteBufferOutput;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Разность (патч) между базовым снимком объекта и его текущим состоянием.
+ * <p>
+ * Каждое значение кодируется байтом:
+ * <ul>
+ *     <li>{@link #SAME} - значение не изменилось;</li>
+ *     <li>{@link #REPLACED} - далее значение полностью, как в {@link ObjectSerializerImpl#writeObject};</li>
+ *     <li>{@link #PATCHED} - значение того же класса изменено на месте, далее изменения по виду значения:
+ *     для объекта - номера измененных полей (разностью с предыдущим номером) и их разности, для списка и
+ *     массива объектов - новый размер списка и номера измененных элементов с их разностями, для множества -
+ *     удаленные и добавленные элементы, для map - удаленные ключи и измененные записи (ключ и разность значения).
+ *     Перечисления номеров завершаются нулем, перечислениям элементов и записей предшествует их число.</li>
+ * </ul>
+ * Строки, обертки, перечисления, массивы примитивов, неизменяемые коллекции, прочие коллекции, кроме списков
+ * и множеств, и классы с пользовательским {@link TypeSerializer} при изменении заменяются целиком. Списки сравниваются по позициям, поэтому вставка в начало
+ * меняет все последующие элементы.
+ * <p>
+ * Неизменившееся значение откатывается в выходе к началу своей записи. Откат безопасен для словарей
+ * контекста: полные значения, пополняющие словари, пишутся только для изменившихся частей.
+ */
+final class DeltaCodec {
+
+    static final int SAME = 0;
+    static final int REPLACED = 1;
+    static final int PATCHED = 2;
+
+    private static final int END = 0;
+
+    private final ObjectSerializerImpl serializer;
+
+    DeltaCodec(ObjectSerializerImpl serializer) {
+        this.serializer = serializer;
+    }
+
+    /**
+     * Записывает разность текущего значения с базовым в выход ctx, который должен быть out
+     */
+    void write(Object base, Object current, ByteBufferOutput out, SerializationContext ctx)
+            throws IOException, ReflectiveOperationException {
+        new Writer(out, ctx).write(base, current);
+    }
+
+    /**
+     * Применяет разность к базовому значению. Изменяемые объекты, списки, множества и map изменяются на месте.
+     * @return новое значение: base или заменившее его значение
+     */
+    Object apply(Object base, DeserializationContext ctx) throws IOException, ReflectiveOperationException {
+        int tag = ctx.in.readByte();
+        switch (tag) {
+            case SAME:
+                return base;
+            case REPLACED:
+                return serializer.readObject(ctx);
+            case PATCHED:
+                break;
+            default:
+                throw new StreamCorruptedException("Unknown delta tag " + tag);
+        }
+        if (base == null) {
+            throw new StreamCorruptedException("Delta patches a null value");
+        }
+        ClassDescriptor descriptor = ClassDescriptor.of(base.getClass());
+        switch (descriptor.getKind()) {
+            case POJO:
+                applyFields(base, descriptor.getAccessors(), ctx);
+                return base;
+            case ARRAY:
+                applyElements((Object[]) base, ctx);
+                return base;
+            case MAP:
+                applyMap((Map<Object, Object>) base, ctx);
+                return base;
+            case COLLECTION:
+                if (base instanceof List) {
+                    applyList((List<Object>) base, ctx);
+                } else {
+                    applySet((Collection<Object>) base, ctx);
+                }
+                return base;
+            default:
+                throw new StreamCorruptedException("Cannot patch " + base.getClass().getName());
+        }
+    }
+
+    private void applyFields(Object obj, FieldAccessor[] accessors, DeserializationContext ctx)
+            throws IOException, ReflectiveOperationException {
+        int index = -1;
+        for (int gap = ctx.readSize(); gap != END; gap = ctx.readSize()) {
+            index += gap;
+            FieldAccessor accessor = accessors[index];
+            if (accessor.getType().isPrimitive()) {
+                serializer.readPrimitiveField(obj, accessor, ctx);
+            } else {
+                accessor.set(obj, apply(accessor.get(obj), ctx));
+            }
+        }
+    }
+
+    private void applyElements(Object[] array, DeserializationContext ctx)
+            throws IOException, ReflectiveOperationException {
+        int index = -1;
+        for (int gap = ctx.readSize(); gap != END; gap = ctx.readSize()) {
+            index += gap;
+            array[index] = apply(array[index], ctx);
+        }
+    }
+
+    private void applyList(List<Object> list, DeserializationContext ctx)
+            throws IOException, ReflectiveOperationException {
+        int size = ctx.readSize();
+        if (size < list.size()) {
+            list.subList(size, list.size()).clear();
+        }
+        while (list.size() < size) {
+            list.add(null);
+        }
+        ListIterator<Object> elements = list.listIterator();
+        int position = -1;
+        int index = -1;
+        Object element = null;
+        for (int gap = ctx.readSize(); gap != END; gap = ctx.readSize()) {
+            index += gap;
+            while (position < index) {
+                element = elements.next();
+                position++;
+            }
+            elements.set(apply(element, ctx));
+        }
+    }
+
+    private void applySet(Collection<Object> collection, DeserializationContext ctx)
+            throws IOException, ReflectiveOperationException {
+        int removed = ctx.readSize();
+        for (int i = 0; i < removed; i++) {
+            collection.remove(serializer.readObject(ctx));
+        }
+        int added = ctx.readSize();
+        for (int i = 0; i < added; i++) {
+            collection.add(serializer.readObject(ctx));
+        }
+    }
+
+    private void applyMap(Map<Object, Object> map, DeserializationContext ctx)
+            throws IOException, ReflectiveOperationException {
+        int removed = ctx.readSize();
+        for (int i = 0; i < removed; i++) {
+            map.remove(serializer.readObject(ctx));
+        }
+        int changed = ctx.readSize();
+        for (int i = 0; i < changed; i++) {
+            Object key = serializer.readObject(ctx);
+            map.put(key, apply(map.get(key), ctx));
+        }
+    }
+
+    /**
+     * Состояние записи одной разности: выход с возможностью отката и уже сравненные пары объектов,
+     * чтобы общие объекты и циклы обходились один раз. Базовый объект изменяется при применении на месте,
+     * поэтому каждый базовый объект сравнивается не более чем с одним текущим.
+     */
+    private final class Writer {
+
+        private final ByteBufferOutput out;
+        private final SerializationContext ctx;
+        private final Map<Object, Object> basesByCurrent = new IdentityHashMap<>();
+        private final Map<Object, Object> currentsByBase = new IdentityHashMap<>();
+
+        Writer(ByteBufferOutput out, SerializationContext ctx) {
+            this.out = out;
+            this.ctx = ctx;
+        }
+
+        /**
+         * Записывает разность значения; возвращает false, если значение не изменилось
+         * (тогда записан только {@link #SAME})
+         */
+        boolean write(Object base, Object current) throws IOException, ReflectiveOperationException {
+            if (base == current) {
+                out.writeByte(SAME);
+                return false;
+            }
+            if (base == null || current == null || base.getClass() != current.getClass()) {
+                return replace(current);
+            }
+            if (serializer.isCustom(current.getClass())) {
+                return replaceUnlessEqual(base, current);
+            }
+            ClassDescriptor descriptor = ClassDescriptor.of(current.getClass());
+            switch (descriptor.getKind()) {
+                case POJO:
+                    return patch(base, current, () -> writeFields(base, current, descriptor.getAccessors()));
+                case ARRAY:
+                    if (descriptor.getType().getComponentType().isPrimitive()
+                            || ((Object[]) base).length != ((Object[]) current).length) {
+                        return replaceUnlessEqual(base, current);
+                    }
+                    return patch(base, current, () -> writeElements((Object[]) base, (Object[]) current));
+                case MAP:
+                    if (CollectionFactory.of(descriptor.getType()).isWrapper()) {
+                        return replaceUnlessEqual(base, current);
+                    }
+                    return patch(base, current, () -> writeMap((Map<?, ?>) base, (Map<?, ?>) current));
+                case COLLECTION:
+                    if (CollectionFactory.of(descriptor.getType()).isWrapper()) {
+                        return replaceUnlessEqual(base, current);
+                    }
+                    if (current instanceof List) {
+                        return patch(base, current, () -> writeList((List<?>) base, (List<?>) current));
+                    }
+                    if (current instanceof Set) {
+                        return patch(base, current, () -> writeSet((Set<?>) base, (Set<?>) current));
+                    }
+                    return replaceUnlessEqual(base, current);
+                default:
+                    return replaceUnlessEqual(base, current);
+            }
+        }
+
+        private boolean replace(Object current) throws IOException, ReflectiveOperationException {
+            out.writeByte(REPLACED);
+            serializer.writeObject(current, ctx);
+            return true;
+        }
+
+        private boolean replaceUnlessEqual(Object base, Object current)
+                throws IOException, ReflectiveOperationException {
+            if (Objects.deepEquals(base, current)
+                    || (base instanceof Collection && elementsEqual((Collection<?>) base, (Collection<?>) current))) {
+                out.writeByte(SAME);
+                return false;
+            }
+            return replace(current);
+        }
+
+        /**
+         * Записывает {@link #PATCHED} и изменения; если изменений нет, откатывает запись и пишет {@link #SAME}.
+         * Пара, уже сравненная в другом месте графа, не изменилась; если же base или current уже сравнивались
+         * с другим объектом, значение заменяется целиком, чтобы изменения разных мест не попали в один
+         * базовый объект.
+         */
+        private boolean patch(Object base, Object current, Changes changes)
+                throws IOException, ReflectiveOperationException {
+            Object pairedBase = basesByCurrent.get(current);
+            Object pairedCurrent = currentsByBase.get(base);
+            if (pairedBase == base) {
+                out.writeByte(SAME);
+                return false;
+            }
+            if (pairedBase != null || pairedCurrent != null) {
+                return replace(current);
+            }
+            basesByCurrent.put(current, base);
+            currentsByBase.put(base, current);
+            int mark = out.position();
+            out.writeByte(PATCHED);
+            if (changes.write()) {
+                return true;
+            }
+            rewind(mark);
+            out.writeByte(SAME);
+            return false;
+        }
+
+        private boolean writeFields(Object base, Object current, FieldAccessor[] accessors)
+                throws IOException, ReflectiveOperationException {
+            int previous = -1;
+            for (int i = 0; i < accessors.length; i++) {
+                FieldAccessor accessor = accessors[i];
+                if (accessor.getType().isPrimitive()) {
+                    if (!samePrimitive(accessor, base, current)) {
+                        ctx.writeSize(i - previous);
+                        previous = i;
+                        serializer.writePrimitiveField(accessor, current, ctx);
+                    }
+                } else if (writeIndexed(i - previous, accessor.get(base), accessor.get(current))) {
+                    previous = i;
+                }
+            }
+            ctx.writeSize(END);
+            return previous >= 0;
+        }
+
+        private boolean writeElements(Object[] base, Object[] current) throws IOException, ReflectiveOperationException {
+            int previous = -1;
+            for (int i = 0; i < current.length; i++) {
+                if (writeIndexed(i - previous, base[i], current[i])) {
+                    previous = i;
+                }
+            }
+            ctx.writeSize(END);
+            return previous >= 0;
+        }
+
+        private boolean writeList(List<?> base, List<?> current) throws IOException, ReflectiveOperationException {
+            ctx.writeSize(current.size());
+            Iterator<?> baseElements = base.iterator();
+            int previous = -1;
+            int i = 0;
+            for (Object element : current) {
+                Object baseElement = baseElements.hasNext() ? baseElements.next() : null;
+                if (writeIndexed(i - previous, baseElement, element)) {
+                    previous = i;
+                }
+                i++;
+            }
+            ctx.writeSize(END);
+            return previous >= 0 || base.size() != current.size();
+        }
+
+        private boolean writeSet(Set<?> base, Set<?> current) throws IOException, ReflectiveOperationException {
+            List<Object> removed = new ArrayList<>();
+            for (Object element : base) {
+                if (!current.contains(element)) {
+                    removed.add(element);
+                }
+            }
+            List<Object> added = new ArrayList<>();
+            for (Object element : current) {
+                if (!base.contains(element)) {
+                    added.add(element);
+                }
+            }
+            writeAll(removed);
+            writeAll(added);
+            return !removed.isEmpty() || !added.isEmpty();
+        }
+
+        /**
+         * Запись map включается, если значение не равно базовому по equals; разность значения при этом
+         * все равно может оказаться {@link #SAME}, если класс значения не переопределяет equals
+         */
+        private boolean writeMap(Map<?, ?> base, Map<?, ?> current) throws IOException, ReflectiveOperationException {
+            List<Object> removed = new ArrayList<>();
+            for (Object key : base.keySet()) {
+                if (!current.containsKey(key)) {
+                    removed.add(key);
+                }
+            }
+            List<Map.Entry<?, ?>> changed = new ArrayList<>();
+            for (Map.Entry<?, ?> entry : current.entrySet()) {
+                Object baseValue = base.get(entry.getKey());
+                if (!Objects.equals(baseValue, entry.getValue())
+                        || (baseValue == null && !base.containsKey(entry.getKey()))) {
+                    changed.add(entry);
+                }
+            }
+            writeAll(removed);
+            ctx.writeSize(changed.size());
+            for (Map.Entry<?, ?> entry : changed) {
+                serializer.writeObject(entry.getKey(), ctx);
+                write(base.get(entry.getKey()), entry.getValue());
+            }
+            return !removed.isEmpty() || !changed.isEmpty();
+        }
+
+        /**
+         * Записывает разницу номера и разность значения; если значение не изменилось, откатывает запись
+         */
+        private boolean writeIndexed(int gap, Object base, Object current)
+                throws IOException, ReflectiveOperationException {
+            int mark = out.position();
+            ctx.writeSize(gap);
+            if (write(base, current)) {
+                return true;
+            }
+            rewind(mark);
+            return false;
+        }
+
+        private void writeAll(List<Object> values) throws IOException, ReflectiveOperationException {
+            ctx.writeSize(values.size());
+            for (Object value : values) {
+                serializer.writeObject(value, ctx);
+            }
+        }
+
+        private void rewind(int mark) {
+            ByteBuffer buffer = out.getBuffer();
+            buffer.position(mark);
+        }
+    }
+
+    /**
+     * Запись изменений значения; возвращает false, если изменений нет
+     */
+    @FunctionalInterface
+    private interface Changes {
+        boolean write() throws IOException, ReflectiveOperationException;
+    }
+
+    private static boolean elementsEqual(Collection<?> base, Collection<?> current) {
+        if (base.size() != current.size()) {
+            return false;
+        }
+        Iterator<?> elements = current.iterator();
+        for (Object element : base) {
+            if (!Objects.equals(element, elements.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean samePrimitive(FieldAccessor accessor, Object base, Object current) {
+        Class<?> type = accessor.getType();
+        if (type == int.class) {
+            return accessor.getInt(base) == accessor.getInt(current);
+        } else if (type == long.class) {
+            return accessor.getLong(base) == accessor.getLong(current);
+        } else if (type == boolean.class) {
+            return accessor.getBoolean(base) == accessor.getBoolean(current);
+        } else if (type == double.class) {
+            return Double.doubleToLongBits(accessor.getDouble(base)) == Double.doubleToLongBits(accessor.getDouble(current));
+        } else if (type == float.class) {
+            return Float.floatToIntBits(accessor.getFloat(base)) == Float.floatToIntBits(accessor.getFloat(current));
+        } else if (type == short.class) {
+            return accessor.getShort(base) == accessor.getShort(current);
+        } else if (type == byte.class) {
+            return accessor.getByte(base) == accessor.getByte(current);
+        } else if (type == char.class) {
+            return accessor.getChar(base) == accessor.getChar(current);
+        }
+        throw new IllegalArgumentException();
+    }
+}
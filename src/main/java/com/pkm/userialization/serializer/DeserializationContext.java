@@ -0,0 +1,275 @@
+package com.pkm.userialization.serializer;
+
+import com.pkm.userialization.io.ByteBufferInput;
+import com.pkm.userialization.io.CountingDataInputStream;
+import com.pkm.userialization.resolver.ClassResolver;
+import com.pkm.userialization.utils.CompactStrings;
+import com.pkm.userialization.utils.VarInts;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.pkm.userialization.serializer.SerializationContext.*;
+
+/**
+ * Состояние чтения одного потока: вход, словарь уже прочитанных классов и таблица уже прочитанных объектов
+ */
+class DeserializationContext {
+
+    /**
+     * Маркер, возвращаемый {@link #readClass()} вместо класса, если в потоке записана ссылка
+     * на уже прочитанный объект. Сам объект читается методом {@link #readReference()}.
+     */
+    static final Class<?> REFERENCE = Reference.class;
+
+    final DataInput in;
+    private final boolean compact;
+    private final ClassResolver classResolver;
+    private List<Class<?>> classes;
+    private List<Object> handles;
+    private final int stringTableSize;
+    private List<String> strings;
+    private byte[] scratch;
+    private ContextInput typeInput;
+    private int depth;
+    private int maxDepth;
+
+    DeserializationContext(DataInput in, SerializerConfig config) {
+        this.in = in;
+        this.compact = config.isCompact();
+        this.classResolver = config.getClassResolver();
+        this.classes = config.isClassTable() ? new ArrayList<>() : null;
+        this.handles = config.isReferenceTracking() ? new ArrayList<>() : null;
+        this.stringTableSize = config.getStringTableSize();
+        this.strings = stringTableSize > 0 ? new ArrayList<>() : null;
+    }
+
+    /**
+     * Сколько байт прочитано из входа, если он ведет счет ({@link ByteBufferInput} или
+     * {@link CountingDataInputStream}), иначе 0. Используется только при сборе метрик.
+     */
+    long position() {
+        if (in instanceof ByteBufferInput) {
+            return ((ByteBufferInput) in).getBuffer().position();
+        }
+        return in instanceof CountingDataInputStream ? ((CountingDataInputStream) in).getCount() : 0;
+    }
+
+    /**
+     * Переход к значению следующего уровня вложенности; возвращает его глубину
+     */
+    int enter() {
+        if (++depth > maxDepth) {
+            maxDepth = depth;
+        }
+        return depth;
+    }
+
+    void exit() {
+        depth--;
+    }
+
+    /**
+     * Наибольшая глубина с последнего вызова; счет начинается заново
+     */
+    int takeMaxDepth() {
+        int max = maxDepth;
+        maxDepth = depth;
+        return max;
+    }
+
+    /**
+     * Продолжает счет глубины родительского контекста, чтобы значения внутри куска не считались корневыми
+     */
+    void inheritDepth(DeserializationContext parent) {
+        depth = parent.depth;
+        maxDepth = parent.depth;
+    }
+
+    /**
+     * Учитывает глубину, достигнутую в дочернем контексте
+     */
+    void mergeDepth(DeserializationContext child) {
+        maxDepth = Math.max(maxDepth, child.maxDepth);
+    }
+
+    /**
+     * Сбрасывает словарь классов и таблицу объектов, чтобы использовать контекст для чтения следующего потока
+     * из того же входа
+     */
+    void reset() {
+        depth = 0;
+        maxDepth = 0;
+        if (classes != null) {
+            classes = classes.size() > RETAINED_TABLE_SIZE ? new ArrayList<>() : clear(classes);
+        }
+        if (strings != null) {
+            strings = strings.size() > RETAINED_TABLE_SIZE ? new ArrayList<>() : clear(strings);
+        }
+        resetReferences();
+    }
+
+    /**
+     * Сбрасывает только таблицу объектов, см. {@link SerializationContext#resetReferences()}
+     */
+    void resetReferences() {
+        if (handles != null) {
+            handles = handles.size() > RETAINED_TABLE_SIZE ? new ArrayList<>() : clear(handles);
+        }
+    }
+
+    private static <T> List<T> clear(List<T> list) {
+        list.clear();
+        return list;
+    }
+
+    /**
+     * Временный буфер для пакетной записи и чтения массивов примитивов
+     */
+    byte[] scratch() {
+        if (scratch == null) {
+            scratch = new byte[SCRATCH_SIZE];
+        }
+        return scratch;
+    }
+
+    /**
+     * Вход для пользовательских {@link TypeSerializer}, создается при первом обращении
+     */
+    TypeInput typeInput(ObjectSerializerImpl serializer) {
+        if (typeInput == null) {
+            typeInput = new ContextInput(serializer, this);
+        }
+        return typeInput;
+    }
+
+    /**
+     * Читает размер, записанный {@link SerializationContext#writeSize(int)}
+     */
+    int readSize() throws IOException {
+        return compact ? VarInts.readUnsignedVarInt(in) : in.readInt();
+    }
+
+    int readInt() throws IOException {
+        return compact ? VarInts.readVarInt(in) : in.readInt();
+    }
+
+    long readLong() throws IOException {
+        return compact ? VarInts.readVarLong(in) : in.readLong();
+    }
+
+    /**
+     * Читает строку, записанную {@link SerializationContext#writeString(String)}.
+     * Повторы, записанные номером в таблице строк, возвращаются одним и тем же экземпляром.
+     */
+    String readString() throws IOException {
+        if (strings == null) {
+            return readLiteral();
+        }
+        int tag = VarInts.readUnsignedVarInt(in);
+        if (tag != STRING_LITERAL_TAG) {
+            int id = tag - STRING_LITERAL_TAG - 1;
+            if (id >= strings.size()) {
+                throw new StreamCorruptedException("Unknown string id " + id);
+            }
+            return strings.get(id);
+        }
+        String s = readLiteral();
+        if (strings.size() < stringTableSize) {
+            strings.add(s);
+        }
+        return s;
+    }
+
+    private String readLiteral() throws IOException {
+        return compact ? CompactStrings.read(in, scratch()) : in.readUTF();
+    }
+
+    /**
+     * Читает класс, записанный {@link SerializationContext#writeClass(Class)}.
+     * Возвращает null, если был записан заголовок null, и {@link #REFERENCE}, если была записана ссылка.
+     */
+    Class<?> readClass() throws IOException, ClassNotFoundException {
+        if (classes == null) {
+            String className = in.readUTF();
+            if (NULL_CLASS_NAME.equals(className)) {
+                return null;
+            }
+            return REFERENCE_CLASS_NAME.equals(className) ? REFERENCE : classResolver.resolve(className);
+        }
+        int tag = VarInts.readUnsignedVarInt(in);
+        switch (tag) {
+            case NULL_TAG:
+                return null;
+            case REFERENCE_TAG:
+                return REFERENCE;
+            case NEW_CLASS_TAG:
+                Class<?> clazz = classResolver.resolve(in.readUTF());
+                classes.add(clazz);
+                return clazz;
+            default:
+                int id = tag - FIRST_CLASS_ID_TAG;
+                if (id >= classes.size()) {
+                    throw new IOException("Unknown class id " + id);
+                }
+                return classes.get(id);
+        }
+    }
+
+    /**
+     * Читает заголовок, записанный {@link SerializationContext#writeKnownClassHeader(Object, boolean)}.
+     * Возвращает null, {@link #REFERENCE} или переданный класс, если следом записано значение.
+     */
+    Class<?> readKnownClassHeader(Class<?> clazz) throws IOException {
+        int tag = in.readByte();
+        switch (tag) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_PRESENT:
+                return clazz;
+            case VALUE_REFERENCE:
+                return REFERENCE;
+            default:
+                throw new StreamCorruptedException("Unknown value tag " + tag);
+        }
+    }
+
+    /**
+     * Читает номер ссылки и возвращает ранее прочитанный объект
+     */
+    Object readReference() throws IOException {
+        int handle = VarInts.readUnsignedVarInt(in);
+        if (handles == null || handle >= handles.size()) {
+            throw new IOException("Unknown object reference " + handle);
+        }
+        return handles.get(handle);
+    }
+
+    /**
+     * Резервирует номер для объекта, который будет создан следующим.
+     * Возвращает -1, если отслеживание ссылок выключено.
+     */
+    int reserveHandle() {
+        if (handles == null) {
+            return -1;
+        }
+        handles.add(null);
+        return handles.size() - 1;
+    }
+
+    /**
+     * Связывает созданный объект с зарезервированным номером. Вызывается до чтения содержимого объекта,
+     * чтобы циклические ссылки на него разрешались.
+     */
+    void setHandle(int handle, Object obj) {
+        if (handle >= 0) {
+            handles.set(handle, obj);
+        }
+    }
+
+    private static final class Reference {
+    }
+}
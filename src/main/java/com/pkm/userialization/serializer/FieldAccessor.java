@@ -0,0 +1,479 @@
+package com.pkm.userialization.serializer;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Типизированный доступ к нестатическому полю через {@link MethodHandle}, построенные один раз на поле.
+ * Для примитивных полей есть методы чтения и записи без упаковки, например {@link #getInt(Object)}.
+ * Final-поля записываются без изменения модификаторов поля.
+ */
+public abstract class FieldAccessor {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final Field field;
+    private final boolean exactType;
+
+    final MethodHandle getter;
+    final MethodHandle setter;
+
+    private FieldAccessor(Field field) throws IllegalAccessException {
+        Class<?> type = field.getType().isPrimitive() ? field.getType() : Object.class;
+        field.setAccessible(true);
+        this.field = field;
+        this.exactType = isExactType(field.getType());
+        this.getter = LOOKUP.unreflectGetter(field)
+                .asType(MethodType.methodType(type, Object.class));
+        this.setter = LOOKUP.unreflectSetter(field)
+                .asType(MethodType.methodType(void.class, Object.class, type));
+    }
+
+    /**
+     * Создает accessor, соответствующий типу поля
+     */
+    public static FieldAccessor of(Field field) throws IllegalAccessException {
+        Class<?> type = field.getType();
+        if (type == int.class) {
+            return new IntAccessor(field);
+        } else if (type == long.class) {
+            return new LongAccessor(field);
+        } else if (type == short.class) {
+            return new ShortAccessor(field);
+        } else if (type == byte.class) {
+            return new ByteAccessor(field);
+        } else if (type == char.class) {
+            return new CharAccessor(field);
+        } else if (type == boolean.class) {
+            return new BooleanAccessor(field);
+        } else if (type == double.class) {
+            return new DoubleAccessor(field);
+        } else if (type == float.class) {
+            return new FloatAccessor(field);
+        } else {
+            return new ObjectAccessor(field);
+        }
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    /**
+     * Объявленный тип поля
+     */
+    public Class<?> getType() {
+        return field.getType();
+    }
+
+    /**
+     * Возвращает true, если значение поля всегда имеет в точности объявленный тип
+     * (примитив, final-класс или массив таких типов), и его класс не нужно сохранять
+     */
+    public boolean isExactType() {
+        return exactType;
+    }
+
+    private static boolean isExactType(Class<?> type) {
+        if (type.isArray()) {
+            return isExactType(type.getComponentType());
+        }
+        return type.isPrimitive() || Modifier.isFinal(type.getModifiers());
+    }
+
+    /**
+     * Значение поля; для примитивов - упакованное
+     */
+    public abstract Object get(Object obj);
+
+    /**
+     * Записывает значение в поле; для примитивов значение распаковывается
+     */
+    public abstract void set(Object obj, Object value);
+
+    public int getInt(Object obj) {
+        throw wrongType(int.class);
+    }
+
+    public void setInt(Object obj, int value) {
+        throw wrongType(int.class);
+    }
+
+    public long getLong(Object obj) {
+        throw wrongType(long.class);
+    }
+
+    public void setLong(Object obj, long value) {
+        throw wrongType(long.class);
+    }
+
+    public short getShort(Object obj) {
+        throw wrongType(short.class);
+    }
+
+    public void setShort(Object obj, short value) {
+        throw wrongType(short.class);
+    }
+
+    public byte getByte(Object obj) {
+        throw wrongType(byte.class);
+    }
+
+    public void setByte(Object obj, byte value) {
+        throw wrongType(byte.class);
+    }
+
+    public char getChar(Object obj) {
+        throw wrongType(char.class);
+    }
+
+    public void setChar(Object obj, char value) {
+        throw wrongType(char.class);
+    }
+
+    public boolean getBoolean(Object obj) {
+        throw wrongType(boolean.class);
+    }
+
+    public void setBoolean(Object obj, boolean value) {
+        throw wrongType(boolean.class);
+    }
+
+    public double getDouble(Object obj) {
+        throw wrongType(double.class);
+    }
+
+    public void setDouble(Object obj, double value) {
+        throw wrongType(double.class);
+    }
+
+    public float getFloat(Object obj) {
+        throw wrongType(float.class);
+    }
+
+    public void setFloat(Object obj, float value) {
+        throw wrongType(float.class);
+    }
+
+    private IllegalStateException wrongType(Class<?> requested) {
+        return new IllegalStateException("Field " + field + " is not of type " + requested.getName());
+    }
+
+    static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new IllegalStateException(t);
+    }
+
+    private static final class ObjectAccessor extends FieldAccessor {
+
+        ObjectAccessor(Field field) throws IllegalAccessException {
+            super(field);
+        }
+
+        @Override
+        public Object get(Object obj) {
+            try {
+                return (Object) getter.invokeExact(obj);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        public void set(Object obj, Object value) {
+            try {
+                setter.invokeExact(obj, value);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+    }
+
+    private static final class IntAccessor extends FieldAccessor {
+
+        IntAccessor(Field field) throws IllegalAccessException {
+            super(field);
+        }
+
+        @Override
+        public Object get(Object obj) {
+            return getInt(obj);
+        }
+
+        @Override
+        public void set(Object obj, Object value) {
+            setInt(obj, (Integer) value);
+        }
+
+        @Override
+        public int getInt(Object obj) {
+            try {
+                return (int) getter.invokeExact(obj);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        public void setInt(Object obj, int value) {
+            try {
+                setter.invokeExact(obj, value);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+    }
+
+    private static final class LongAccessor extends FieldAccessor {
+
+        LongAccessor(Field field) throws IllegalAccessException {
+            super(field);
+        }
+
+        @Override
+        public Object get(Object obj) {
+            return getLong(obj);
+        }
+
+        @Override
+        public void set(Object obj, Object value) {
+            setLong(obj, (Long) value);
+        }
+
+        @Override
+        public long getLong(Object obj) {
+            try {
+                return (long) getter.invokeExact(obj);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        public void setLong(Object obj, long value) {
+            try {
+                setter.invokeExact(obj, value);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+    }
+
+    private static final class ShortAccessor extends FieldAccessor {
+
+        ShortAccessor(Field field) throws IllegalAccessException {
+            super(field);
+        }
+
+        @Override
+        public Object get(Object obj) {
+            return getShort(obj);
+        }
+
+        @Override
+        public void set(Object obj, Object value) {
+            setShort(obj, (Short) value);
+        }
+
+        @Override
+        public short getShort(Object obj) {
+            try {
+                return (short) getter.invokeExact(obj);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        public void setShort(Object obj, short value) {
+            try {
+                setter.invokeExact(obj, value);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+    }
+
+    private static final class ByteAccessor extends FieldAccessor {
+
+        ByteAccessor(Field field) throws IllegalAccessException {
+            super(field);
+        }
+
+        @Override
+        public Object get(Object obj) {
+            return getByte(obj);
+        }
+
+        @Override
+        public void set(Object obj, Object value) {
+            setByte(obj, (Byte) value);
+        }
+
+        @Override
+        public byte getByte(Object obj) {
+            try {
+                return (byte) getter.invokeExact(obj);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        public void setByte(Object obj, byte value) {
+            try {
+                setter.invokeExact(obj, value);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+    }
+
+    private static final class CharAccessor extends FieldAccessor {
+
+        CharAccessor(Field field) throws IllegalAccessException {
+            super(field);
+        }
+
+        @Override
+        public Object get(Object obj) {
+            return getChar(obj);
+        }
+
+        @Override
+        public void set(Object obj, Object value) {
+            setChar(obj, (Character) value);
+        }
+
+        @Override
+        public char getChar(Object obj) {
+            try {
+                return (char) getter.invokeExact(obj);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        public void setChar(Object obj, char value) {
+            try {
+                setter.invokeExact(obj, value);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+    }
+
+    private static final class BooleanAccessor extends FieldAccessor {
+
+        BooleanAccessor(Field field) throws IllegalAccessException {
+            super(field);
+        }
+
+        @Override
+        public Object get(Object obj) {
+            return getBoolean(obj);
+        }
+
+        @Override
+        public void set(Object obj, Object value) {
+            setBoolean(obj, (Boolean) value);
+        }
+
+        @Override
+        public boolean getBoolean(Object obj) {
+            try {
+                return (boolean) getter.invokeExact(obj);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        public void setBoolean(Object obj, boolean value) {
+            try {
+                setter.invokeExact(obj, value);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+    }
+
+    private static final class DoubleAccessor extends FieldAccessor {
+
+        DoubleAccessor(Field field) throws IllegalAccessException {
+            super(field);
+        }
+
+        @Override
+        public Object get(Object obj) {
+            return getDouble(obj);
+        }
+
+        @Override
+        public void set(Object obj, Object value) {
+            setDouble(obj, (Double) value);
+        }
+
+        @Override
+        public double getDouble(Object obj) {
+            try {
+                return (double) getter.invokeExact(obj);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        public void setDouble(Object obj, double value) {
+            try {
+                setter.invokeExact(obj, value);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+    }
+
+    private static final class FloatAccessor extends FieldAccessor {
+
+        FloatAccessor(Field field) throws IllegalAccessException {
+            super(field);
+        }
+
+        @Override
+        public Object get(Object obj) {
+            return getFloat(obj);
+        }
+
+        @Override
+        public void set(Object obj, Object value) {
+            setFloat(obj, (Float) value);
+        }
+
+        @Override
+        public float getFloat(Object obj) {
+            try {
+                return (float) getter.invokeExact(obj);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        public void setFloat(Object obj, float value) {
+            try {
+                setter.invokeExact(obj, value);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+    }
+}
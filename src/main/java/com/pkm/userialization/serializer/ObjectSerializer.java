@@ -1,7 +1,14 @@
 package com.pkm.userialization.serializer;
 
+import com.pkm.userialization.io.BufferPool;
+
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
 
 public interface ObjectSerializer {
 
@@ -10,8 +17,88 @@ public interface ObjectSerializer {
      */
     byte[] serializeObj(Object obj) throws IOException, ReflectiveOperationException;
 
+    /**
+     * Точный размер в байтах, который займет объект при сериализации с теми же настройками.
+     * Граф объекта не должен изменяться до самой сериализации.
+     */
+    long serializedSize(Object obj) throws IOException, ReflectiveOperationException;
+
     /**
      * Десериализация массива байт в объект
      */
     Object deserializeObj(byte [] bytes) throws ReflectiveOperationException, IOException;
+
+    /**
+     * Сериализация объекта в поток. Данные пишутся кадром из кусков с длиной, каждый кусок передается
+     * в поток одним вызовом; формат отличается от {@link #serializeObj(Object)}. Поток не закрывается.
+     */
+    void serializeObj(Object obj, OutputStream outputStream) throws IOException, ReflectiveOperationException;
+
+    /**
+     * Десериализация объекта, записанного {@link #serializeObj(Object, OutputStream)}. Куски кадра читаются
+     * из потока целиком во внутренний буфер, при этом из потока читается ровно столько байт, сколько занимает
+     * объект, поэтому из одного потока можно читать объекты подряд. Поток не закрывается.
+     */
+    Object deserializeObj(InputStream inputStream) throws ReflectiveOperationException, IOException;
+
+    /**
+     * Сериализация объекта в канал. Канал не закрывается.
+     */
+    void serializeObj(Object obj, WritableByteChannel channel) throws IOException, ReflectiveOperationException;
+
+    /**
+     * Десериализация объекта из канала. Так же, как и из потока, читается ровно объект. Канал не закрывается.
+     */
+    Object deserializeObj(ReadableByteChannel channel) throws ReflectiveOperationException, IOException;
+
+    /**
+     * Сериализация объекта в буфер (в куче или direct) начиная с его текущей позиции.
+     * Позиция буфера сдвигается на конец записанных данных.
+     * @throws java.nio.BufferOverflowException если в буфере не хватило места; позиция буфера при этом не меняется
+     */
+    void serializeObj(Object obj, ByteBuffer buffer) throws IOException, ReflectiveOperationException;
+
+    /**
+     * Сериализация объекта в буфер из пула, растущий по мере необходимости.
+     * Возвращенный буфер подготовлен к чтению; после использования его следует вернуть в пул.
+     */
+    ByteBuffer serializeObj(Object obj, BufferPool pool) throws IOException, ReflectiveOperationException;
+
+    /**
+     * Десериализация объекта из буфера начиная с его текущей позиции.
+     * Позиция буфера сдвигается на конец прочитанных данных.
+     */
+    Object deserializeObj(ByteBuffer buffer) throws ReflectiveOperationException, IOException;
+
+    /**
+     * Сериализация нескольких объектов в один пакет. Словарь классов и таблица строк общие для всех записей
+     * пакета, поэтому имя класса и повторяющаяся строка записываются один раз на пакет.
+     * Ссылки между разными записями не сохраняются.
+     */
+    byte[] serializeBatch(List<?> objects) throws IOException, ReflectiveOperationException;
+
+    /**
+     * Десериализация всех записей пакета, записанного {@link #serializeBatch(List)}
+     */
+    List<Object> deserializeBatch(byte[] bytes) throws ReflectiveOperationException, IOException;
+
+    /**
+     * Последовательное чтение записей пакета прямо из буфера, начиная с его текущей позиции.
+     * Позиция буфера сдвигается по мере чтения записей. Читатель нужно закрыть после чтения.
+     */
+    BatchReader readBatch(ByteBuffer buffer) throws IOException;
+
+    /**
+     * Разность (патч) текущего состояния объекта с базовым снимком: записываются только изменившиеся поля,
+     * элементы и записи коллекций. Оба объекта не изменяются. Части, общие для base и current (один и тот же
+     * экземпляр), считаются неизменившимися, поэтому снимок должен быть копией, а не тем же графом.
+     */
+    byte[] serializeDelta(Object base, Object current) throws IOException, ReflectiveOperationException;
+
+    /**
+     * Применяет разность, записанную {@link #serializeDelta(Object, Object)}, к копии того же базового снимка.
+     * Изменяемые объекты и коллекции снимка изменяются на месте.
+     * @return новое состояние: сам base или заменивший его объект
+     */
+    Object applyDelta(Object base, byte[] delta) throws ReflectiveOperationException, IOException;
 }
@@ -1,252 +1,1014 @@
 package com.pkm.userialization.serializer;
 
-import com.google.common.primitives.Primitives;
-import com.pkm.userialization.utils.ReflectionUtils;
+import com.pkm.userialization.instantiator.DefaultInstantiatorStrategy;
+import com.pkm.userialization.instantiator.Instantiator;
+import com.pkm.userialization.io.BlockCompressingOutputStream;
+import com.pkm.userialization.io.BlockDecompressingInputStream;
+import com.pkm.userialization.io.BufferPool;
+import com.pkm.userialization.io.ByteBufferInput;
+import com.pkm.userialization.io.ByteBufferOutput;
+import com.pkm.userialization.io.ChunkedInputStream;
+import com.pkm.userialization.io.ChunkedOutputStream;
+import com.pkm.userialization.io.CountingDataInputStream;
+import com.pkm.userialization.io.SizeCountingOutput;
+import com.pkm.userialization.metrics.SerializationListener;
+import com.pkm.userialization.utils.PrimitiveArrays;
+import com.pkm.userialization.utils.VarInts;
 
 import java.io.*;
 import java.lang.reflect.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Сериализатор на основе рефлексии. Потокобезопасен: состояние каждого вызова хранится в собственных контекстах,
+ * которые создаются заново; для их переиспользования см. {@link PooledObjectSerializer}.
+ */
 public class ObjectSerializerImpl implements ObjectSerializer {
 
+    private static final int STREAM_CHUNK_SIZE = 8192;
+    private static final int POOLED_BUFFER_INITIAL_CAPACITY = 4096;
+    private static final int DELTA_INITIAL_CAPACITY = 256;
+    private static final int INITIAL_SIZE_ESTIMATE = 32;
+
+    /**
+     * Оценка размера уменьшается, только если столько значений подряд оказались в четыре раза меньше нее
+     */
+    private static final int SIZE_ESTIMATE_SHRINK_AFTER = 16;
+
+    /**
+     * Размер общей таблицы строк пакета записей, если он не задан в настройках
+     */
+    static final int BATCH_STRING_TABLE_SIZE = 4096;
+
+    /**
+     * Поле EnumMap.keyType или null, если оно недоступно (java.util не открыт для рефлексии):
+     * только из него можно узнать класс ключей пустой EnumMap
+     */
+    private static final Field ENUM_MAP_KEY_TYPE;
+
+    static {
+        Field field;
+        try {
+            field = EnumMap.class.getDeclaredField("keyType");
+            field.setAccessible(true);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            field = null;
+        }
+        ENUM_MAP_KEY_TYPE = field;
+    }
+
+    private final SerializerConfig config;
+    private final SerializerConfig batchConfig;
+    private final ClassValue<Instantiator> instantiators;
+    private final ClassValue<ValueCodec> codecs;
+
+    /**
+     * Начальная емкость буфера записи в массив по классу корневого объекта: наибольший недавний размер
+     * значения с запасом
+     */
+    private final ClassValue<SizeEstimate> sizeEstimates = new ClassValue<SizeEstimate>() {
+        @Override
+        protected SizeEstimate computeValue(Class<?> type) {
+            return new SizeEstimate();
+        }
+    };
+    private final ParallelChunks chunks;
+    private final DeltaCodec deltas;
+    private final boolean indexed;
+
+    /**
+     * Стандартные коллекции создаются с емкостью под размер, только если стратегия создания не переопределена
+     */
+    private final boolean presized;
+
+    /**
+     * Получатель метрик; null, если метрики не собираются
+     */
+    private final SerializationListener listener;
+
+    /**
+     * Сериализатор для подсчета размера: этот же или, при сборе метрик, такой же без получателя метрик,
+     * чтобы проход подсчета не учитывался в метриках
+     */
+    private final ObjectSerializerImpl sizer;
+
+    public ObjectSerializerImpl() {
+        this(SerializerConfig.DEFAULT);
+    }
+
+    public ObjectSerializerImpl(SerializerConfig config) {
+        this.config = config;
+        this.batchConfig = config.toBuilder()
+                .classTable(true)
+                .stringTableSize(config.getStringTableSize() > 0 ? config.getStringTableSize() : BATCH_STRING_TABLE_SIZE)
+                .build();
+        this.instantiators = new ClassValue<Instantiator>() {
+            @Override
+            protected Instantiator computeValue(Class<?> type) {
+                return config.getInstantiatorStrategy().instantiatorFor(type);
+            }
+        };
+        this.codecs = new ClassValue<ValueCodec>() {
+            @Override
+            protected ValueCodec computeValue(Class<?> type) {
+                Class<?> enumType = ClassDescriptor.enumTypeOf(type);
+                return enumType != type ? get(enumType) : codecOf(type);
+            }
+        };
+        this.chunks = new ParallelChunks(this, config);
+        this.deltas = new DeltaCodec(this);
+        this.indexed = config.isIndexed();
+        this.presized = config.getInstantiatorStrategy().getClass() == DefaultInstantiatorStrategy.class;
+        this.listener = config.getListener();
+        this.sizer = listener == null ? this : new ObjectSerializerImpl(config.toBuilder().listener(null).build());
+    }
+
+    /**
+     * Пользовательское кодирование класса имеет приоритет; иначе кодирование выбирается по виду класса
+     */
+    private ValueCodec codecOf(Class<?> type) {
+        TypeSerializer<Object> custom = (TypeSerializer<Object>) config.getTypeSerializers().get(type);
+        if (custom != null) {
+            return new ValueCodec(type, false, true,
+                    (obj, ctx) -> custom.write(obj, ctx.typeOutput(this)),
+                    (handle, ctx) -> {
+                        Object obj = custom.read(ctx.typeInput(this));
+                        ctx.setHandle(handle, obj);
+                        return obj;
+                    });
+        }
+        ClassDescriptor descriptor = ClassDescriptor.of(type);
+        boolean valueType = descriptor.isValueType();
+        switch (descriptor.getKind()) {
+            case PRIMITIVE:
+            case WRAPPER:
+                Class<?> primitiveType = descriptor.getPrimitiveType();
+                return new ValueCodec(type, valueType, false,
+                        (obj, ctx) -> writePrimitive(primitiveType, obj, ctx),
+                        (handle, ctx) -> readPrimitive(primitiveType, ctx));
+            case STRING:
+                return new ValueCodec(type, valueType, false,
+                        (obj, ctx) -> ctx.writeString((String) obj),
+                        (handle, ctx) -> ctx.readString());
+            case ARRAY:
+                Class<?> componentType = type.getComponentType();
+                return new ValueCodec(type, valueType, false,
+                        (obj, ctx) -> writeArray(obj, componentType, ctx),
+                        this::readArray);
+            case ENUM:
+                if (config.isEnumOrdinals()) {
+                    Object[] constants = descriptor.getEnumConstants();
+                    return new ValueCodec(type, valueType, false,
+                            (obj, ctx) -> VarInts.writeUnsignedVarInt(ctx.out, ((Enum<?>) obj).ordinal()),
+                            (handle, ctx) -> readEnumOrdinal(constants, ctx));
+                }
+                return new ValueCodec(type, valueType, false,
+                        (obj, ctx) -> writeEnum(obj, descriptor, ctx),
+                        (handle, ctx) -> readEnum(descriptor, ctx));
+            case MAP:
+                if (type == EnumMap.class) {
+                    return new ValueCodec(type, valueType, false,
+                            (obj, ctx) -> writeEnumMap((EnumMap<?, ?>) obj, ctx),
+                            this::readEnumMap);
+                }
+                return new ValueCodec(type, valueType, false,
+                        (obj, ctx) -> writeMap((Map<?, ?>) obj, ctx),
+                        (handle, ctx) -> readMap(descriptor, handle, ctx));
+            case COLLECTION:
+                if (EnumSet.class.isAssignableFrom(type)) {
+                    return new ValueCodec(type, valueType, false,
+                            (obj, ctx) -> writeEnumSet((EnumSet<?>) obj, ctx),
+                            this::readEnumSet);
+                }
+                return new ValueCodec(type, valueType, false,
+                        (obj, ctx) -> writeCollection((Collection<?>) obj, ctx),
+                        (handle, ctx) -> readCollection(descriptor, handle, ctx));
+            default:
+                return new ValueCodec(type, valueType, false,
+                        (obj, ctx) -> writePojo(obj, descriptor, ctx),
+                        (handle, ctx) -> readPojo(descriptor, handle, ctx));
+        }
+    }
+
+    /**
+     * Возвращает true, если класс кодируется пользовательским {@link TypeSerializer}:
+     * его внутреннее устройство сериализатору неизвестно
+     */
+    boolean isCustom(Class<?> type) {
+        return codecs.get(type).custom;
+    }
+
+    /**
+     * Запись идет в растущий буфер с емкостью по оценке для класса, поэтому буфер почти никогда не растет,
+     * а результат копируется из него один раз (без копирования, если размер совпал с емкостью)
+     */
     public byte[] serializeObj(Object obj) throws IOException, ReflectiveOperationException {
+        SizeEstimate estimate = sizeEstimates.get(obj == null ? Object.class : obj.getClass());
+        ByteBufferOutput output = new ByteBufferOutput(estimate.capacity);
+        encode(output, out -> writeObject(obj, new SerializationContext(out, config)));
+        ByteBuffer buffer = output.getBuffer();
+        int size = buffer.position();
+        estimate.update(size);
+        return size == buffer.capacity() ? buffer.array() : Arrays.copyOf(buffer.array(), size);
+    }
+
+    /**
+     * Оценка размера для класса
+     */
+    int sizeEstimate(Class<?> type) {
+        return sizeEstimates.get(type).capacity;
+    }
+
+    /**
+     * Оценка размера значений одного класса: наибольший недавний размер с запасом в четверть.
+     * Гонки при обновлении безвредны, оценка влияет только на начальную емкость буфера.
+     */
+    private static final class SizeEstimate {
+
+        volatile int capacity = INITIAL_SIZE_ESTIMATE;
+
+        /**
+         * Сколько значений подряд оказались намного меньше оценки
+         */
+        int smaller;
+
+        void update(int size) {
+            int current = capacity;
+            if (size > current) {
+                capacity = Math.max(INITIAL_SIZE_ESTIMATE, size + (size >>> 2));
+                smaller = 0;
+            } else if (size >= current / 4) {
+                smaller = 0;
+            } else if (++smaller >= SIZE_ESTIMATE_SHRINK_AFTER) {
+                capacity = Math.max(INITIAL_SIZE_ESTIMATE, size + (size >>> 2));
+                smaller = 0;
+            }
+        }
+    }
+
+    /**
+     * Подсчет идет полным проходом записи без сохранения байт; при сжатии данные сжимаются
+     */
+    public long serializedSize(Object obj) throws IOException, ReflectiveOperationException {
+        SizeCountingOutput output = new SizeCountingOutput();
+        sizer.encode(output, out -> sizer.writeObject(obj, new SerializationContext(out, config)));
+        return output.size();
+    }
+
+    public Object deserializeObj(byte[] bytes) throws ReflectiveOperationException, IOException {
+        try(ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
+            DataInputStream dataInputStream = new DataInputStream(bais)) {
+
+            return decode(dataInputStream, in -> readObject(new DeserializationContext(in, config)));
+        }
+    }
+
+    /**
+     * Объект пишется кадром из кусков {@link ChunkedOutputStream}, каждый кусок передается в поток одним вызовом
+     */
+    public void serializeObj(Object obj, OutputStream outputStream) throws IOException, ReflectiveOperationException {
+        ChunkedOutputStream chunked = new ChunkedOutputStream(outputStream, STREAM_CHUNK_SIZE);
+        encode(new DataOutputStream(chunked), out -> writeObject(obj, new SerializationContext(out, config)));
+        chunked.finish();
+    }
+
+    /**
+     * Куски кадра читаются из потока целиком, и ничего сверх кадра не читается, чтобы следующий объект
+     * остался в потоке
+     */
+    public Object deserializeObj(InputStream inputStream) throws ReflectiveOperationException, IOException {
+        ChunkedInputStream chunked = new ChunkedInputStream(inputStream);
+        Object obj = decode(new DataInputStream(chunked), in -> readObject(new DeserializationContext(in, config)));
+        chunked.finish();
+        return obj;
+    }
+
+    public void serializeObj(Object obj, WritableByteChannel channel) throws IOException, ReflectiveOperationException {
+        serializeObj(obj, Channels.newOutputStream(channel));
+    }
+
+    public Object deserializeObj(ReadableByteChannel channel) throws ReflectiveOperationException, IOException {
+        return deserializeObj(Channels.newInputStream(channel));
+    }
+
+    public void serializeObj(Object obj, ByteBuffer buffer) throws IOException, ReflectiveOperationException {
+        ByteBufferOutput output = new ByteBufferOutput(buffer.duplicate());
+        encode(output, out -> writeObject(obj, new SerializationContext(out, config)));
+        buffer.position(output.position());
+    }
+
+    public ByteBuffer serializeObj(Object obj, BufferPool pool) throws IOException, ReflectiveOperationException {
+        ByteBufferOutput output = new ByteBufferOutput(pool, POOLED_BUFFER_INITIAL_CAPACITY);
+        try {
+            encode(output, out -> writeObject(obj, new SerializationContext(out, config)));
+        } catch (IOException | ReflectiveOperationException | RuntimeException e) {
+            pool.release(output.getBuffer());
+            throw e;
+        }
+        ByteBuffer buffer = output.getBuffer();
+        buffer.flip();
+        return buffer;
+    }
+
+    public Object deserializeObj(ByteBuffer buffer) throws ReflectiveOperationException, IOException {
+        ByteBufferInput input = new ByteBufferInput(buffer.duplicate());
+        Object obj = decode(input, in -> readObject(new DeserializationContext(in, config)));
+        buffer.position(input.getBuffer().position());
+        return obj;
+    }
+
+    /**
+     * Записи пакета пишутся одним потоком с включенным словарем классов и таблицей строк;
+     * таблица объектов сбрасывается после каждой записи
+     */
+    public byte[] serializeBatch(List<?> objects) throws IOException, ReflectiveOperationException {
         try(ByteArrayOutputStream baos = new ByteArrayOutputStream();
             DataOutputStream dataOutputStream = new DataOutputStream(baos)) {
 
-            writeObject(obj, dataOutputStream);
+            encode(dataOutputStream, out -> {
+                SerializationContext ctx = new SerializationContext(out, batchConfig);
+                ctx.writeSize(objects.size());
+                for (Object obj : objects) {
+                    writeObject(obj, ctx);
+                    ctx.resetReferences();
+                }
+            });
             return baos.toByteArray();
         }
     }
 
-    public Object deserializeObj(byte[] bytes) throws ReflectiveOperationException, IOException {
-        try(ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
+    public List<Object> deserializeBatch(byte[] bytes) throws ReflectiveOperationException, IOException {
+        try (BatchReader reader = readBatch(ByteBuffer.wrap(bytes))) {
+            List<Object> objects = new ArrayList<>(reader.size());
+            while (reader.hasNext()) {
+                objects.add(reader.next());
+            }
+            return objects;
+        }
+    }
+
+    /**
+     * При включенном сжатии блоки распаковываются по мере чтения записей; распаковщик освобождается
+     * при закрытии читателя
+     */
+    public BatchReader readBatch(ByteBuffer buffer) throws IOException {
+        ByteBufferInput input = new ByteBufferInput(buffer);
+        if (!config.isCompressed()) {
+            return new BatchReader(this, new DeserializationContext(input, batchConfig), null);
+        }
+        BlockDecompressingInputStream decompressing = new BlockDecompressingInputStream(input);
+        try {
+            DataInput in = listener == null
+                    ? new DataInputStream(decompressing)
+                    : new CountingDataInputStream(decompressing);
+            return new BatchReader(this, new DeserializationContext(in, batchConfig), decompressing);
+        } catch (IOException | RuntimeException e) {
+            decompressing.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Разность кодируется в буфер в памяти, потому что неизменившиеся части откатываются;
+     * при включенном сжатии буфер затем сжимается
+     */
+    public byte[] serializeDelta(Object base, Object current) throws IOException, ReflectiveOperationException {
+        ByteBufferOutput output = new ByteBufferOutput(DELTA_INITIAL_CAPACITY);
+        deltas.write(base, current, output, new SerializationContext(output, config));
+        ByteBuffer buffer = output.getBuffer();
+        if (!config.isCompressed()) {
+            return Arrays.copyOf(buffer.array(), buffer.position());
+        }
+        try(ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            DataOutputStream dataOutputStream = new DataOutputStream(baos)) {
+
+            encode(dataOutputStream, out -> out.write(buffer.array(), 0, buffer.position()));
+            return baos.toByteArray();
+        }
+    }
+
+    public Object applyDelta(Object base, byte[] delta) throws ReflectiveOperationException, IOException {
+        try(ByteArrayInputStream bais = new ByteArrayInputStream(delta);
             DataInputStream dataInputStream = new DataInputStream(bais)) {
 
-            return readObject(dataInputStream);
+            return decode(dataInputStream, in -> deltas.apply(base, new DeserializationContext(in, config)));
+        }
+    }
+
+    /**
+     * Запись через выход, переданный кодировщику
+     */
+    @FunctionalInterface
+    private interface Encoder {
+        void encode(DataOutput out) throws IOException, ReflectiveOperationException;
+    }
+
+    /**
+     * Чтение через вход, переданный декодировщику
+     */
+    @FunctionalInterface
+    private interface Decoder {
+        Object decode(DataInput in) throws IOException, ReflectiveOperationException;
+    }
+
+    /**
+     * Передает кодировщику выход: сам out либо, при включенном сжатии, выход через блочное сжатие.
+     * Сжатый кадр завершается; out не закрывается.
+     */
+    private <T extends OutputStream & DataOutput> void encode(T out, Encoder encoder)
+            throws IOException, ReflectiveOperationException {
+        if (!config.isCompressed()) {
+            encoder.encode(out);
+            return;
+        }
+        try (BlockCompressingOutputStream compressing = new BlockCompressingOutputStream(out,
+                config.getCompressionLevel(), config.getCompressionBlockSize(), config.getCompressionThreshold())) {
+            encoder.encode(new DataOutputStream(compressing));
+            compressing.finish();
+        }
+    }
+
+    /**
+     * Передает декодировщику вход: сам in либо, при включенном сжатии, вход через распаковку блоков.
+     * При сборе метрик вход, не считающий байты, оборачивается в {@link CountingDataInputStream}.
+     * Сжатый кадр дочитывается до конца; in не закрывается.
+     */
+    private <T extends InputStream & DataInput> Object decode(T in, Decoder decoder)
+            throws IOException, ReflectiveOperationException {
+        if (!config.isCompressed()) {
+            return decoder.decode(listener == null || in instanceof ByteBufferInput ? in : new CountingDataInputStream(in));
+        }
+        try (BlockDecompressingInputStream decompressing = new BlockDecompressingInputStream(in)) {
+            Object obj = decoder.decode(listener == null
+                    ? new DataInputStream(decompressing)
+                    : new CountingDataInputStream(decompressing));
+            decompressing.finish();
+            return obj;
+        }
+    }
+
+    /**
+     * Представление объекта, записанного в индексированном формате, для чтения отдельных частей без
+     * десериализации всего графа. Данные читаются с текущей позиции буфера; позиция не меняется,
+     * буфер не должен изменяться, пока используется представление.
+     * @throws IllegalStateException если формат не индексированный или включены словарь классов,
+     * отслеживание ссылок, таблица строк либо сжатие: тогда части нельзя прочитать независимо друг от друга
+     */
+    public ObjectView view(ByteBuffer buffer) throws IOException, ReflectiveOperationException {
+        if (!indexed || config.isClassTable() || config.isReferenceTracking() || config.getStringTableSize() > 0
+                || config.isCompressed()) {
+            throw new IllegalStateException(
+                    "Views require indexed layout without class table, reference tracking, string table and compression");
         }
+        return ObjectView.root(this, config, buffer.duplicate());
+    }
+
+    public ObjectView view(byte[] bytes) throws IOException, ReflectiveOperationException {
+        return view(ByteBuffer.wrap(bytes));
     }
 
-    private Object readObject(DataInputStream dataInputStream) throws IOException, ReflectiveOperationException {
-        String className = dataInputStream.readUTF();
-        if ("null".equals(className)) {
+    Object readObject(DeserializationContext ctx) throws IOException, ReflectiveOperationException {
+        return readObject(ctx.readClass(), ctx);
+    }
+
+    /**
+     * Читает значение, заголовок которого (класс) уже прочитан
+     */
+    Object readObject(Class<?> clazz, DeserializationContext ctx)
+            throws IOException, ReflectiveOperationException {
+        if (clazz == null) {
             return null;
         }
-        Class<?> clazz = Class.forName(className);
+        if (clazz == DeserializationContext.REFERENCE) {
+            return ctx.readReference();
+        }
+        ValueCodec codec = codecs.get(clazz);
+        return listener == null ? readValue(codec, ctx) : readValueMeasured(codec, ctx);
+    }
+
+    /**
+     * Читает значение и сообщает получателю метрик его размер, время чтения и, для корневого значения,
+     * глубину графа
+     */
+    private Object readValueMeasured(ValueCodec codec, DeserializationContext ctx)
+            throws IOException, ReflectiveOperationException {
+        long start = ctx.position();
+        long startNanos = System.nanoTime();
+        int depth = ctx.enter();
         Object obj;
+        try {
+            obj = readValue(codec, ctx);
+        } finally {
+            ctx.exit();
+        }
+        long bytes = ctx.position() - start;
+        listener.valueRead(codec.type, bytes, System.nanoTime() - startNanos);
+        if (depth == 1) {
+            listener.payloadRead(codec.type, bytes, ctx.takeMaxDepth());
+        }
+        return obj;
+    }
 
-        if (clazz.isPrimitive()){
-            obj = readPrimitive(clazz, dataInputStream);
-        } else if (Primitives.isWrapperType(clazz)) {
-            obj = readPrimitive(Primitives.unwrap(clazz), dataInputStream);
-        } else if (clazz == String.class) {
-            obj = dataInputStream.readUTF();
-        } else if (clazz.isArray()) {
-            obj = readArray(dataInputStream);
-        } else if (clazz.isEnum()) {
-            obj = readEnum((Class<Enum>) clazz, dataInputStream);
-        } else if (Map.class.isAssignableFrom(clazz)) {
-            obj = readMap(clazz, dataInputStream);
-        } else if (Collection.class.isAssignableFrom(clazz)) {
-            obj = readCollection(clazz, dataInputStream);
-        } else {
-            if (ReflectionUtils.hasNoArgsConstructor(clazz)) {
-                obj = clazz.newInstance();
-            } else {
-                obj = ReflectionUtils.newInstanceWithoutNoArgsConstructor(clazz);
-            }
-            List<Field> allNonStaticField = ReflectionUtils.getAllNonStaticFields(clazz);
-            for (Field field : allNonStaticField) {
-                readField(obj, field, dataInputStream);
+    private Object readValue(ValueCodec codec, DeserializationContext ctx)
+            throws IOException, ReflectiveOperationException {
+        int handle = codec.valueType ? -1 : ctx.reserveHandle();
+        return codec.reader.read(handle, ctx);
+    }
+
+    private Object readPojo(ClassDescriptor descriptor, int handle, DeserializationContext ctx)
+            throws IOException, ReflectiveOperationException {
+        Object obj = newInstance(descriptor);
+        ctx.setHandle(handle, obj);
+        skipIndex(descriptor.getAccessors().length, ctx);
+        for (FieldAccessor accessor : descriptor.getAccessors()) {
+            readField(obj, accessor, ctx);
+        }
+        return obj;
+    }
+
+    /**
+     * Пропускает таблицу смещений индексированного значения: при полном чтении части идут подряд
+     */
+    private void skipIndex(int count, DeserializationContext ctx) throws IOException {
+        if (indexed) {
+            for (int i = 0; i < count; i++) {
+                ctx.readSize();
             }
         }
+    }
 
-        return obj;
+    private Object newInstance(ClassDescriptor descriptor) throws ReflectiveOperationException {
+        return instantiators.get(descriptor.getType()).newInstance();
     }
 
-    private Object readMap(Class<?> clazz, DataInputStream dataInputStream)
+    private Object readMap(ClassDescriptor descriptor, int handle, DeserializationContext ctx)
             throws IOException, ReflectiveOperationException {
-        Map<Object,Object> map = (Map<Object, Object>) clazz.newInstance();
-        int size = dataInputStream.readInt();
-        for (int i = 0; i < size; i++) {
-            Object key = readObject(dataInputStream);
-            Object value = readObject(dataInputStream);
-            map.put(key, value);
+        CollectionFactory factory = CollectionFactory.of(descriptor.getType());
+        int size = ctx.readSize();
+        Map<Object, Object> map = (Map<Object, Object>) newContainer(factory, descriptor, size);
+        if (!factory.isWrapper()) {
+            ctx.setHandle(handle, map);
         }
+        readEntries(map, size, ctx);
+        return build(factory, map, handle, ctx);
+    }
+
+    /**
+     * Перед записями EnumMap записан класс ключей: без него нельзя создать пустую EnumMap
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object readEnumMap(int handle, DeserializationContext ctx)
+            throws IOException, ReflectiveOperationException {
+        Map<Object, Object> map = new EnumMap((Class) readEnumType(ctx));
+        ctx.setHandle(handle, map);
+        readEntries(map, ctx.readSize(), ctx);
         return map;
     }
 
-    private Object readCollection(Class<?> clazz, DataInputStream dataInputStream)
+    private void readEntries(Map<Object, Object> map, int size, DeserializationContext ctx)
+            throws IOException, ReflectiveOperationException {
+        if (chunks.applies(size)) {
+            Object[] values = chunks.read(size, 2, ctx);
+            for (int i = 0; i < values.length; i += 2) {
+                map.put(values[i], values[i + 1]);
+            }
+        } else {
+            skipIndex(size, ctx);
+            for (int i = 0; i < size; i++) {
+                Object key = readObject(ctx);
+                Object value = readObject(ctx);
+                map.put(key, value);
+            }
+        }
+    }
+
+    private Object readCollection(ClassDescriptor descriptor, int handle, DeserializationContext ctx)
+            throws IOException, ReflectiveOperationException {
+        CollectionFactory factory = CollectionFactory.of(descriptor.getType());
+        int size = ctx.readSize();
+        Collection<Object> collection = (Collection<Object>) newContainer(factory, descriptor, size);
+        if (!factory.isWrapper()) {
+            ctx.setHandle(handle, collection);
+        }
+        readElements(collection, size, ctx);
+        return build(factory, collection, handle, ctx);
+    }
+
+    /**
+     * Перед элементами EnumSet записан класс перечисления
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object readEnumSet(int handle, DeserializationContext ctx)
+            throws IOException, ReflectiveOperationException {
+        Collection<Object> set = EnumSet.noneOf((Class) readEnumType(ctx));
+        ctx.setHandle(handle, set);
+        readElements(set, ctx.readSize(), ctx);
+        return set;
+    }
+
+    private void readElements(Collection<Object> collection, int size, DeserializationContext ctx)
             throws IOException, ReflectiveOperationException {
-        Collection<Object> collection = (Collection<Object>) clazz.newInstance();
-        int size = dataInputStream.readInt();
-        for (int i = 0; i < size; i++) {
-            collection.add(readObject(dataInputStream));
+        if (chunks.applies(size)) {
+            collection.addAll(Arrays.asList(chunks.read(size, 1, ctx)));
+        } else {
+            skipIndex(size, ctx);
+            for (int i = 0; i < size; i++) {
+                collection.add(readObject(ctx));
+            }
+        }
+    }
+
+    private static Class<?> readEnumType(DeserializationContext ctx) throws IOException, ClassNotFoundException {
+        Class<?> type = ctx.readClass();
+        if (type == null || !type.isEnum()) {
+            throw new StreamCorruptedException("Expected an enum class, got " + (type == null ? null : type.getName()));
+        }
+        return type;
+    }
+
+    private Object newContainer(CollectionFactory factory, ClassDescriptor descriptor, int size)
+            throws ReflectiveOperationException {
+        if (factory.hasContainer() && (presized || factory.isWrapper())) {
+            return factory.newContainer(size);
         }
-        return collection;
+        return newInstance(descriptor);
     }
 
-    private Object readEnum(Class<Enum> clazz, DataInputStream dataInputStream)
+    /**
+     * Строит обертку или неизменяемую коллекцию из прочитанного контейнера и только тогда регистрирует ссылку
+     */
+    private Object build(CollectionFactory factory, Object container, int handle, DeserializationContext ctx) {
+        if (!factory.isWrapper()) {
+            return container;
+        }
+        Object obj = factory.build(container);
+        ctx.setHandle(handle, obj);
+        return obj;
+    }
+
+    private Object readEnum(ClassDescriptor descriptor, DeserializationContext ctx)
             throws IOException, ReflectiveOperationException {
-        String value = dataInputStream.readUTF();
-        Enum anEnum = Enum.valueOf(clazz, value);
+        String value = ctx.readString();
+        Enum anEnum = Enum.valueOf((Class<Enum>) descriptor.getType(), value);
 
-        List<Field> fields = ReflectionUtils.getNonStaticDeclaredFields(clazz);
-        for (Field field : fields) {
-            readField(anEnum, field, dataInputStream);
+        for (FieldAccessor accessor : descriptor.getAccessors()) {
+            readField(anEnum, accessor, ctx);
         }
         return anEnum;
     }
 
-    private Object readArray(DataInputStream dataInputStream)
+    private Object readEnumOrdinal(Object[] constants, DeserializationContext ctx) throws IOException {
+        int ordinal = VarInts.readUnsignedVarInt(ctx.in);
+        if (ordinal >= constants.length) {
+            throw new StreamCorruptedException("Unknown ordinal " + ordinal + " of "
+                    + constants.getClass().getComponentType().getName());
+        }
+        return constants[ordinal];
+    }
+
+    private Object readArray(int handle, DeserializationContext ctx)
             throws IOException, ReflectiveOperationException {
-        int arrLength = dataInputStream.readInt();
-        String componentType = dataInputStream.readUTF();
-        Object array = Array.newInstance(ReflectionUtils.loadClass(componentType), arrLength);
+        int arrLength = ctx.readSize();
+        Class<?> componentType = ctx.readClass();
+        if (componentType.isPrimitive()) {
+            Object array = PrimitiveArrays.read(ctx.in, componentType, arrLength, ctx.scratch());
+            ctx.setHandle(handle, array);
+            return array;
+        }
+        Object[] array = (Object[]) Array.newInstance(componentType, arrLength);
+        ctx.setHandle(handle, array);
+        if (chunks.applies(arrLength)) {
+            Object[] values = chunks.read(arrLength, 1, ctx);
+            System.arraycopy(values, 0, array, 0, arrLength);
+            return array;
+        }
+        skipIndex(arrLength, ctx);
         for (int i = 0; i < arrLength; i++) {
-            Array.set(array, i, readObject(dataInputStream));
+            array[i] = readObject(ctx);
         }
         return array;
     }
 
-    private void readField(Object obj, Field field, DataInputStream dataInputStream)
+    private void readField(Object obj, FieldAccessor accessor, DeserializationContext ctx)
             throws IOException, ReflectiveOperationException {
-        if (!field.isAccessible()) {
-            field.setAccessible(true);
+//        String fieldName = dataInputStream.readUTF();
+        Class<?> type = accessor.getType();
+        if (type.isPrimitive()) {
+            readPrimitiveField(obj, accessor, ctx);
+        } else if (accessor.isExactType()) {
+            accessor.set(obj, readObject(ctx.readKnownClassHeader(type), ctx));
+        } else {
+            accessor.set(obj, readObject(ctx));
         }
+    }
 
-        if (Modifier.isFinal(field.getModifiers())) {
-            Field modifiersField = Field.class.getDeclaredField("modifiers");
-            modifiersField.setAccessible(true);
-            modifiersField.setInt(field, field.getModifiers() & ~Modifier.FINAL);
+    void readPrimitiveField(Object obj, FieldAccessor accessor, DeserializationContext ctx)
+            throws IOException {
+        Class<?> type = accessor.getType();
+        if (type == int.class) {
+            accessor.setInt(obj, ctx.readInt());
+        } else if (type == short.class) {
+            accessor.setShort(obj, ctx.in.readShort());
+        } else if (type == long.class) {
+            accessor.setLong(obj, ctx.readLong());
+        } else if (type == char.class) {
+            accessor.setChar(obj, ctx.in.readChar());
+        } else if (type == boolean.class) {
+            accessor.setBoolean(obj, ctx.in.readBoolean());
+        } else if (type == double.class) {
+            accessor.setDouble(obj, ctx.in.readDouble());
+        } else if (type == float.class) {
+            accessor.setFloat(obj, ctx.in.readFloat());
+        } else if (type == byte.class) {
+            accessor.setByte(obj, ctx.in.readByte());
+        } else {
+            throw new IllegalArgumentException();
         }
-
-//        String fieldName = dataInputStream.readUTF();
-        field.set(obj, readObject(dataInputStream));
     }
 
-    private Object readPrimitive(Class<?> clazz, DataInputStream dataInputStream) throws IOException {
+    private Object readPrimitive(Class<?> clazz, DeserializationContext ctx) throws IOException {
         if (clazz == int.class) {
-            return dataInputStream.readInt();
+            return ctx.readInt();
         } else if (clazz == short.class) {
-            return dataInputStream.readShort();
+            return ctx.in.readShort();
         } else if (clazz == long.class) {
-            return dataInputStream.readLong();
+            return ctx.readLong();
         } else if (clazz == char.class) {
-            return dataInputStream.readChar();
+            return ctx.in.readChar();
         } else if (clazz == boolean.class) {
-            return dataInputStream.readBoolean();
+            return ctx.in.readBoolean();
         } else if (clazz == double.class) {
-            return dataInputStream.readDouble();
+            return ctx.in.readDouble();
         } else if (clazz == float.class) {
-            return dataInputStream.readFloat();
+            return ctx.in.readFloat();
         } else if (clazz == byte.class) {
-            return dataInputStream.readByte();
+            return ctx.in.readByte();
         } else {
             throw new IllegalArgumentException();
         }
     }
 
-    private void writeObject(Object obj, DataOutputStream dataOutputStream)
+    void writeObject(Object obj, SerializationContext ctx)
             throws IOException, ReflectiveOperationException {
         if (obj == null) {
-            dataOutputStream.writeUTF("null");
+            ctx.writeNull();
+            return;
+        }
+        ValueCodec codec = codecs.get(obj.getClass());
+        if (!codec.valueType && ctx.writeReference(obj)) {
             return;
         }
-        Class<?> clazz = obj.getClass();
-        dataOutputStream.writeUTF(clazz.getName());
-
-        if (clazz.isPrimitive()) {
-            writePrimitive(clazz, obj, dataOutputStream);
-        } else if (Primitives.isWrapperType(clazz)) {
-            writePrimitive(Primitives.unwrap(clazz), obj, dataOutputStream);
-        } else if (clazz == String.class) {
-            dataOutputStream.writeUTF((String) obj);
-        } else if (clazz.isArray()) {
-            writeArray(obj, clazz.getComponentType(), dataOutputStream);
-        } else if (clazz.isEnum()) {
-            writeEnum(obj, dataOutputStream);
-        } else if (obj instanceof Collection<?>) {
-            writeCollection((Collection<?>) obj, dataOutputStream);
-        } else if (obj instanceof Map<?,?>) {
-            writeMap((Map<?,?>) obj, dataOutputStream);
+        ctx.writeClass(codec.type);
+        writeValue(obj, codec, ctx);
+    }
+
+    /**
+     * Записывает значение без заголовка
+     */
+    private void writeValue(Object obj, ValueCodec codec, SerializationContext ctx)
+            throws IOException, ReflectiveOperationException {
+        if (listener == null) {
+            codec.writer.write(obj, ctx);
         } else {
-            List<Field> allNonStaticFields = ReflectionUtils.getAllNonStaticFields(clazz);
-            for (Field field : allNonStaticFields) {
-                writeField(field, obj, dataOutputStream);
-            }
+            writeValueMeasured(obj, codec, ctx);
+        }
+    }
+
+    /**
+     * Записывает значение и сообщает получателю метрик его размер, время записи и, для корневого значения,
+     * глубину графа
+     */
+    private void writeValueMeasured(Object obj, ValueCodec codec, SerializationContext ctx)
+            throws IOException, ReflectiveOperationException {
+        long start = ctx.position();
+        long startNanos = System.nanoTime();
+        int depth = ctx.enter();
+        try {
+            codec.writer.write(obj, ctx);
+        } finally {
+            ctx.exit();
+        }
+        long bytes = ctx.position() - start;
+        listener.valueWritten(codec.type, bytes, System.nanoTime() - startNanos);
+        if (depth == 1) {
+            listener.payloadWritten(codec.type, bytes, ctx.takeMaxDepth());
+        }
+    }
+
+    private void writePojo(Object obj, ClassDescriptor descriptor, SerializationContext ctx)
+            throws IOException, ReflectiveOperationException {
+        FieldAccessor[] accessors = descriptor.getAccessors();
+        if (indexed) {
+            writeIndexed(accessors.length, (i, parts) -> writeField(accessors[i], obj, parts), ctx);
+            return;
         }
+        for (FieldAccessor accessor : accessors) {
+            writeField(accessor, obj, ctx);
+        }
+    }
+
+    /**
+     * Записывает часть индексированного значения
+     */
+    @FunctionalInterface
+    private interface PartWriter {
+        void write(int index, SerializationContext ctx) throws IOException, ReflectiveOperationException;
+    }
+
+    /**
+     * Записывает count частей во вложенный контекст, затем таблицу смещений частей от конца таблицы
+     * и сами части
+     */
+    private void writeIndexed(int count, PartWriter writer, SerializationContext ctx)
+            throws IOException, ReflectiveOperationException {
+        SerializationContext parts = ctx.nested();
+        int[] offsets = new int[count];
+        for (int i = 0; i < count; i++) {
+            offsets[i] = ctx.nestedPosition();
+            writer.write(i, parts);
+        }
+        for (int offset : offsets) {
+            ctx.writeSize(offset);
+        }
+        ctx.writeNested();
+        ctx.mergeDepth(parts);
     }
 
-    private void writeMap(Map<?, ?> map, DataOutputStream dataOutputStream)
+    private void writeMap(Map<?, ?> map, SerializationContext ctx)
             throws ReflectiveOperationException, IOException {
-        dataOutputStream.writeInt(map.size());
-        for (Object key : map.keySet()) {
-            writeObject(key, dataOutputStream);
-            writeObject(map.get(key), dataOutputStream);
+        ctx.writeSize(map.size());
+        if (chunks.applies(map.size())) {
+            Object[] values = new Object[map.size() * 2];
+            int i = 0;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                values[i++] = entry.getKey();
+                values[i++] = entry.getValue();
+            }
+            chunks.write(values, 2, ctx);
+            return;
+        }
+        if (indexed) {
+            Iterator<? extends Map.Entry<?, ?>> entries = map.entrySet().iterator();
+            writeIndexed(map.size(), (i, parts) -> {
+                Map.Entry<?, ?> entry = entries.next();
+                writeObject(entry.getKey(), parts);
+                writeObject(entry.getValue(), parts);
+            }, ctx);
+            return;
+        }
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            writeObject(entry.getKey(), ctx);
+            writeObject(entry.getValue(), ctx);
         }
     }
 
-    private void writeCollection(Collection<?> collection, DataOutputStream dataOutputStream)
+    private void writeCollection(Collection<?> collection, SerializationContext ctx)
             throws ReflectiveOperationException, IOException {
-        dataOutputStream.writeInt(collection.size());
+        ctx.writeSize(collection.size());
+        if (chunks.applies(collection.size())) {
+            chunks.write(collection.toArray(), 1, ctx);
+            return;
+        }
+        if (indexed) {
+            Iterator<?> elements = collection.iterator();
+            writeIndexed(collection.size(), (i, parts) -> writeObject(elements.next(), parts), ctx);
+            return;
+        }
         for (Object elem : collection) {
-            writeObject(elem, dataOutputStream);
+            writeObject(elem, ctx);
         }
     }
 
-    private void writeEnum(Object obj, DataOutputStream dataOutputStream)
+    private void writeEnumMap(EnumMap<?, ?> map, SerializationContext ctx)
             throws IOException, ReflectiveOperationException {
-        Class<?> clazz = obj.getClass();
+        ctx.writeClass(keyTypeOf(map));
+        writeMap(map, ctx);
+    }
 
-        Field nameField = Enum.class.getDeclaredField("name");
-        nameField.setAccessible(true);
-        String name = String.valueOf(nameField.get(obj));
-        dataOutputStream.writeUTF(name);
+    private void writeEnumSet(EnumSet<?> set, SerializationContext ctx)
+            throws IOException, ReflectiveOperationException {
+        Iterator<?> elements = (set.isEmpty() ? EnumSet.complementOf(set) : set).iterator();
+        if (!elements.hasNext()) {
+            throw new NotSerializableException("Element type of an empty EnumSet of an enum without constants is unknown");
+        }
+        ctx.writeClass(((Enum<?>) elements.next()).getDeclaringClass());
+        writeCollection(set, ctx);
+    }
 
-        List<Field> fields = ReflectionUtils.getNonStaticDeclaredFields(clazz);
-        for (Field field : fields) {
-            writeField(field, obj, dataOutputStream);
+    /**
+     * Класс ключей EnumMap: по первому ключу, а у пустой map - из ее поля keyType, если оно доступно
+     */
+    private static Class<?> keyTypeOf(EnumMap<?, ?> map) throws IOException, IllegalAccessException {
+        if (!map.isEmpty()) {
+            return ((Enum<?>) map.keySet().iterator().next()).getDeclaringClass();
         }
+        if (ENUM_MAP_KEY_TYPE == null) {
+            throw new NotSerializableException("Key type of an empty EnumMap is not accessible: java.util is not open");
+        }
+        return (Class<?>) ENUM_MAP_KEY_TYPE.get(map);
     }
 
-    private void writeField(Field field, Object obj, DataOutputStream dataOutputStream)
+    private void writeEnum(Object obj, ClassDescriptor descriptor, SerializationContext ctx)
             throws IOException, ReflectiveOperationException {
-        if (!field.isAccessible()) {
-            field.setAccessible(true);
+        ctx.writeString(((Enum<?>) obj).name());
+
+        for (FieldAccessor accessor : descriptor.getAccessors()) {
+            writeField(accessor, obj, ctx);
         }
+    }
+
+    private void writeField(FieldAccessor accessor, Object obj, SerializationContext ctx)
+            throws IOException, ReflectiveOperationException {
 //        dataOutputStream.writeUTF(field.getName());
-        writeObject(field.get(obj), dataOutputStream);
+        Class<?> type = accessor.getType();
+        if (type.isPrimitive()) {
+            writePrimitiveField(accessor, obj, ctx);
+        } else if (accessor.isExactType()) {
+            Object value = accessor.get(obj);
+            ValueCodec codec = value == null ? null : codecs.get(value.getClass());
+            if (ctx.writeKnownClassHeader(value, codec != null && !codec.valueType)) {
+                writeValue(value, codec, ctx);
+            }
+        } else {
+            writeObject(accessor.get(obj), ctx);
+        }
+    }
+
+    void writePrimitiveField(FieldAccessor accessor, Object obj, SerializationContext ctx)
+            throws IOException {
+        Class<?> type = accessor.getType();
+        if (type == int.class) {
+            ctx.writeInt(accessor.getInt(obj));
+        } else if (type == short.class) {
+            ctx.out.writeShort(accessor.getShort(obj));
+        } else if (type == long.class) {
+            ctx.writeLong(accessor.getLong(obj));
+        } else if (type == char.class) {
+            ctx.out.writeChar(accessor.getChar(obj));
+        } else if (type == boolean.class) {
+            ctx.out.writeBoolean(accessor.getBoolean(obj));
+        } else if (type == double.class) {
+            ctx.out.writeDouble(accessor.getDouble(obj));
+        } else if (type == float.class) {
+            ctx.out.writeFloat(accessor.getFloat(obj));
+        } else if (type == byte.class) {
+            ctx.out.writeByte(accessor.getByte(obj));
+        } else {
+            throw new IllegalArgumentException();
+        }
     }
 
-    private void writeArray(Object obj, Class<?> componentType, DataOutputStream dataOutputStream)
+    private void writeArray(Object obj, Class<?> componentType, SerializationContext ctx)
             throws IOException, ReflectiveOperationException {
         int arrLength = Array.getLength(obj);
-        dataOutputStream.writeInt(arrLength);
-        dataOutputStream.writeUTF(componentType.getName());
-        for (int i = 0; i < arrLength; i++) {
-            writeObject(Array.get(obj, i), dataOutputStream);
+        ctx.writeSize(arrLength);
+        ctx.writeClass(componentType);
+        if (componentType.isPrimitive()) {
+            PrimitiveArrays.write(ctx.out, obj, ctx.scratch());
+            return;
+        }
+        Object[] array = (Object[]) obj;
+        if (chunks.applies(arrLength)) {
+            chunks.write(array, 1, ctx);
+            return;
+        }
+        if (indexed) {
+            writeIndexed(arrLength, (i, parts) -> writeObject(array[i], parts), ctx);
+            return;
+        }
+        for (Object elem : array) {
+            writeObject(elem, ctx);
         }
     }
 
-    private void writePrimitive(Class<?> clazz, Object value, DataOutputStream dataOutputStream) throws IOException {
+    private void writePrimitive(Class<?> clazz, Object value, SerializationContext ctx) throws IOException {
         if (clazz == int.class) {
-            dataOutputStream.writeInt((int) value);
+            ctx.writeInt((int) value);
         } else if (clazz == short.class) {
-            dataOutputStream.writeShort((short) value);
+            ctx.out.writeShort((short) value);
         } else if (clazz == long.class) {
-            dataOutputStream.writeLong((long) value);
+            ctx.writeLong((long) value);
         } else if (clazz == char.class) {
-            dataOutputStream.writeChar((char) value);
+            ctx.out.writeChar((char) value);
         } else if (clazz == boolean.class) {
-            dataOutputStream.writeBoolean((boolean) value);
+            ctx.out.writeBoolean((boolean) value);
         } else if (clazz == double.class) {
-            dataOutputStream.writeDouble((double) value);
+            ctx.out.writeDouble((double) value);
         } else if (clazz == float.class) {
-            dataOutputStream.writeFloat((float) value);
+            ctx.out.writeFloat((float) value);
         } else if (clazz == byte.class) {
-            dataOutputStream.writeByte((byte) value);
+            ctx.out.writeByte((byte) value);
         } else {
             throw new IllegalArgumentException();
         }
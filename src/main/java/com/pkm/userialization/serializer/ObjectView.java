@@ -0,0 +1,255 @@
+package com.pkm.userialization.serializer;
+
+import com.pkm.userialization.io.ByteBufferInput;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Objects;
+
+/**
+ * Представление значения, записанного в индексированном формате ({@link SerializerConfig#isIndexed()}).
+ * Позволяет прочитать отдельное поле, элемент коллекции или массива либо значение map по ключу,
+ * переходя по таблицам смещений и не декодируя остальные части. Создается методом
+ * {@link ObjectSerializerImpl#view(ByteBuffer)}. Не изменяет позицию исходного буфера.
+ * <p>
+ * Переход через значение null дает представление null.
+ */
+public final class ObjectView {
+
+    private static final int OFFSET_SIZE = 4;
+
+    private final ObjectSerializerImpl serializer;
+    private final SerializerConfig config;
+    private final ByteBuffer buffer;
+    private final Class<?> type;
+    private final int position;
+
+    private ObjectView(ObjectSerializerImpl serializer, SerializerConfig config, ByteBuffer buffer,
+                       Class<?> type, int position) {
+        this.serializer = serializer;
+        this.config = config;
+        this.buffer = buffer;
+        this.type = type;
+        this.position = position;
+    }
+
+    static ObjectView root(ObjectSerializerImpl serializer, SerializerConfig config, ByteBuffer buffer)
+            throws IOException, ReflectiveOperationException {
+        ObjectView view = new ObjectView(serializer, config, buffer.order(ByteOrder.BIG_ENDIAN), null, -1);
+        return view.at(buffer.position(), null);
+    }
+
+    /**
+     * Класс значения; null для значения null
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    public boolean isNull() {
+        return type == null;
+    }
+
+    /**
+     * Значение целиком
+     */
+    public Object get() throws IOException, ReflectiveOperationException {
+        if (type == null) {
+            return null;
+        }
+        return serializer.readObject(type, context(position));
+    }
+
+    /**
+     * Значение по пути вида {@code university.name}, {@code students[3].name} или {@code byName[Ivan]},
+     * см. {@link #path(String)}
+     */
+    public Object get(String path) throws IOException, ReflectiveOperationException {
+        return path(path).get();
+    }
+
+    /**
+     * Переходит по пути из имен полей, разделенных точками, и индексов в квадратных скобках.
+     * Для map в скобках указывается строковый ключ, для коллекций и массивов - номер элемента.
+     */
+    public ObjectView path(String path) throws IOException, ReflectiveOperationException {
+        ObjectView view = this;
+        int i = 0;
+        while (i < path.length() && !view.isNull()) {
+            char c = path.charAt(i);
+            if (c == '.') {
+                i++;
+            } else if (c == '[') {
+                int end = path.indexOf(']', i);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unclosed bracket in path " + path);
+                }
+                String key = path.substring(i + 1, end);
+                view = view.kind() == ClassDescriptor.Kind.MAP ? view.value(key) : view.element(Integer.parseInt(key));
+                i = end + 1;
+            } else {
+                int end = i;
+                while (end < path.length() && path.charAt(end) != '.' && path.charAt(end) != '[') {
+                    end++;
+                }
+                view = view.field(path.substring(i, end));
+                i = end;
+            }
+        }
+        return view;
+    }
+
+    /**
+     * Поле объекта по имени. Если имя объявлено в нескольких классах иерархии, берется поле самого
+     * производного класса.
+     */
+    public ObjectView field(String name) throws IOException, ReflectiveOperationException {
+        FieldAccessor[] accessors = require(ClassDescriptor.Kind.POJO).getAccessors();
+        for (int i = 0; i < accessors.length; i++) {
+            if (accessors[i].getField().getName().equals(name)) {
+                return at(partPosition(position, accessors.length, i), accessors[i]);
+            }
+        }
+        throw new NoSuchFieldException(type.getName() + "." + name);
+    }
+
+    /**
+     * Число элементов коллекции, массива или map
+     */
+    public int size() throws IOException {
+        ClassDescriptor.Kind kind = kind();
+        if (kind != ClassDescriptor.Kind.COLLECTION && kind != ClassDescriptor.Kind.MAP
+                && kind != ClassDescriptor.Kind.ARRAY) {
+            throw new IllegalStateException(type.getName() + " has no size");
+        }
+        return contents().readSize();
+    }
+
+    /**
+     * Элемент коллекции или массива объектов по номеру в порядке итерации
+     */
+    public ObjectView element(int index) throws IOException, ReflectiveOperationException {
+        ClassDescriptor.Kind kind = kind();
+        DeserializationContext ctx = contents();
+        int size = ctx.readSize();
+        if (kind == ClassDescriptor.Kind.ARRAY) {
+            if (type.getComponentType().isPrimitive()) {
+                throw new IllegalStateException("Primitive arrays are not indexed: " + type.getName());
+            }
+            ctx.readClass();
+        } else if (kind != ClassDescriptor.Kind.COLLECTION) {
+            throw new IllegalStateException(type.getName() + " is neither a collection nor an array");
+        }
+        return at(partPosition(position(ctx), size, index), null);
+    }
+
+    /**
+     * Значение map по ключу; ключи декодируются по очереди до первого совпадения.
+     * Если ключа нет, возвращается представление null.
+     */
+    public ObjectView value(Object key) throws IOException, ReflectiveOperationException {
+        require(ClassDescriptor.Kind.MAP);
+        DeserializationContext ctx = contents();
+        int size = ctx.readSize();
+        int[] offsets = new int[size];
+        for (int i = 0; i < size; i++) {
+            offsets[i] = ctx.readSize();
+        }
+        int dataStart = position(ctx);
+        for (int offset : offsets) {
+            DeserializationContext entry = context(dataStart + offset);
+            if (Objects.equals(key, serializer.readObject(entry))) {
+                return at(position(entry), null);
+            }
+        }
+        return new ObjectView(serializer, config, buffer, null, -1);
+    }
+
+    @Override
+    public String toString() {
+        return "ObjectView{" + (type == null ? "null" : type.getName()) + " at " + position + "}";
+    }
+
+    private ClassDescriptor.Kind kind() {
+        if (type == null) {
+            throw new IllegalStateException("Value is null");
+        }
+        if (serializer.isCustom(type)) {
+            throw new IllegalStateException(type.getName() + " is encoded by a custom serializer");
+        }
+        return ClassDescriptor.of(type).getKind();
+    }
+
+    private ClassDescriptor require(ClassDescriptor.Kind kind) {
+        if (kind() != kind) {
+            throw new IllegalStateException(type.getName() + " is not of kind " + kind);
+        }
+        return ClassDescriptor.of(type);
+    }
+
+    /**
+     * Представление значения, заголовок которого начинается с указанной позиции.
+     * Для поля вид заголовка определяется его объявленным типом, как при обычном чтении.
+     */
+    private ObjectView at(int headerPosition, FieldAccessor accessor) throws IOException, ReflectiveOperationException {
+        DeserializationContext ctx = context(headerPosition);
+        Class<?> clazz;
+        if (accessor == null) {
+            clazz = ctx.readClass();
+        } else if (accessor.getType().isPrimitive()) {
+            clazz = accessor.getType();
+        } else if (accessor.isExactType()) {
+            clazz = ctx.readKnownClassHeader(accessor.getType());
+        } else {
+            clazz = ctx.readClass();
+        }
+        return new ObjectView(serializer, config, buffer, clazz, position(ctx));
+    }
+
+    /**
+     * Позиция части с указанным номером по таблице смещений, начинающейся с tableStart.
+     * В обычном формате смещения имеют фиксированный размер и читаются напрямую, в компактном - по порядку.
+     */
+    private int partPosition(int tableStart, int count, int index) throws IOException {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + count);
+        }
+        if (!config.isCompact()) {
+            return tableStart + OFFSET_SIZE * count + buffer.getInt(tableStart + OFFSET_SIZE * index);
+        }
+        DeserializationContext ctx = context(tableStart);
+        int offset = 0;
+        for (int i = 0; i < count; i++) {
+            int value = ctx.readSize();
+            if (i == index) {
+                offset = value;
+            }
+        }
+        return position(ctx) + offset;
+    }
+
+    /**
+     * Контекст чтения с начала содержимого значения. У EnumMap и EnumSet перед размером записан класс
+     * перечисления; словарь классов в представлениях выключен, поэтому класс записан именем и пропускается.
+     */
+    private DeserializationContext contents() throws IOException {
+        DeserializationContext ctx = context(position);
+        if (type == EnumMap.class || EnumSet.class.isAssignableFrom(type)) {
+            ctx.in.readUTF();
+        }
+        return ctx;
+    }
+
+    private DeserializationContext context(int position) {
+        ByteBuffer input = buffer.duplicate();
+        input.position(position);
+        return new DeserializationContext(new ByteBufferInput(input), config);
+    }
+
+    private static int position(DeserializationContext ctx) {
+        return ((ByteBufferInput) ctx.in).getBuffer().position();
+    }
+}
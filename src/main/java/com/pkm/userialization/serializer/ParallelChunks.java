@@ -0,0 +1,179 @@
+package com.pkm.userialization.serializer;
+
+import com.pkm.userialization.io.ByteBufferInput;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Параллельное кодирование длинных последовательностей значений независимыми кусками.
+ * <p>
+ * Значения делятся на куски по {@link SerializerConfig#getParallelChunkSize()} элементов; каждый кусок
+ * пишется в отдельный буфер со своими контекстами (словарем классов и т.д.), а в поток куски
+ * записываются по порядку, каждый с префиксом длины. Число кусков не пишется: читающая сторона
+ * вычисляет его по размеру коллекции, поэтому прочитать все куски можно последовательно,
+ * а декодировать - параллельно.
+ */
+final class ParallelChunks {
+
+    private final ObjectSerializerImpl serializer;
+    private final SerializerConfig config;
+    private final int chunkSize;
+    private final ForkJoinPool pool;
+
+    ParallelChunks(ObjectSerializerImpl serializer, SerializerConfig config) {
+        this.serializer = serializer;
+        this.config = config;
+        this.chunkSize = config.isReferenceTracking() || config.isIndexed() ? 0 : config.getParallelChunkSize();
+        this.pool = config.getParallelPool();
+    }
+
+    /**
+     * Возвращает true, если последовательность из указанного числа элементов кодируется кусками
+     */
+    boolean applies(int size) {
+        return chunkSize > 0 && size > chunkSize;
+    }
+
+    /**
+     * Записывает значения кусками. Элемент последовательности занимает stride значений подряд
+     * (например, ключ и значение для map).
+     */
+    void write(Object[] values, int stride, SerializationContext ctx)
+            throws IOException, ReflectiveOperationException {
+        int step = chunkSize * stride;
+        List<EncodeTask> tasks = new ArrayList<>();
+        for (int from = 0; from < values.length; from += step) {
+            tasks.add(start(new EncodeTask(values, from, Math.min(values.length, from + step), ctx)));
+        }
+        for (EncodeTask task : tasks) {
+            byte[] chunk = task.await();
+            ctx.writeSize(chunk.length);
+            ctx.out.write(chunk);
+            ctx.mergeDepth(task.chunkCtx);
+        }
+    }
+
+    /**
+     * Читает size элементов по stride значений, записанных {@link #write(Object[], int, SerializationContext)}
+     */
+    Object[] read(int size, int stride, DeserializationContext ctx)
+            throws IOException, ReflectiveOperationException {
+        List<DecodeTask> tasks = new ArrayList<>();
+        for (int from = 0; from < size; from += chunkSize) {
+            byte[] chunk = new byte[ctx.readSize()];
+            ctx.in.readFully(chunk);
+            tasks.add(start(new DecodeTask(chunk, Math.min(size - from, chunkSize) * stride, ctx)));
+        }
+        Object[] values = new Object[size * stride];
+        int position = 0;
+        for (DecodeTask task : tasks) {
+            Object[] chunkValues = task.await();
+            System.arraycopy(chunkValues, 0, values, position, chunkValues.length);
+            position += chunkValues.length;
+            ctx.mergeDepth(task.chunkCtx);
+        }
+        return values;
+    }
+
+    /**
+     * Запускает задачу в пуле. Из рабочего потока того же пула (вложенные коллекции) задача
+     * кладется в локальную очередь, чтобы ожидающий поток мог выполнить ее сам.
+     */
+    private <T extends ChunkTask<?>> T start(T task) {
+        Thread thread = Thread.currentThread();
+        if (thread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) thread).getPool() == pool) {
+            task.fork();
+        } else {
+            pool.execute(task);
+        }
+        return task;
+    }
+
+    /**
+     * Задача, сохраняющая проверяемое исключение, чтобы пробросить его вызывающему без обертки
+     */
+    @SuppressWarnings("serial")
+    private abstract static class ChunkTask<T> extends RecursiveTask<T> {
+
+        private Exception failure;
+
+        @Override
+        protected final T compute() {
+            try {
+                return call();
+            } catch (Exception e) {
+                failure = e;
+                return null;
+            }
+        }
+
+        abstract T call() throws IOException, ReflectiveOperationException;
+
+        T await() throws IOException, ReflectiveOperationException {
+            T result = join();
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure instanceof ReflectiveOperationException) {
+                throw (ReflectiveOperationException) failure;
+            } else if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            return result;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private final class EncodeTask extends ChunkTask<byte[]> {
+
+        private final Object[] values;
+        private final int from;
+        private final int to;
+        private final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final SerializationContext chunkCtx = new SerializationContext(new DataOutputStream(baos), config);
+
+        EncodeTask(Object[] values, int from, int to, SerializationContext parent) {
+            this.values = values;
+            this.from = from;
+            this.to = to;
+            chunkCtx.inheritDepth(parent);
+        }
+
+        @Override
+        byte[] call() throws IOException, ReflectiveOperationException {
+            for (int i = from; i < to; i++) {
+                serializer.writeObject(values[i], chunkCtx);
+            }
+            return baos.toByteArray();
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private final class DecodeTask extends ChunkTask<Object[]> {
+
+        private final int count;
+        final DeserializationContext chunkCtx;
+
+        DecodeTask(byte[] chunk, int count, DeserializationContext parent) {
+            this.count = count;
+            this.chunkCtx = new DeserializationContext(new ByteBufferInput(ByteBuffer.wrap(chunk)), config);
+            chunkCtx.inheritDepth(parent);
+        }
+
+        @Override
+        Object[] call() throws IOException, ReflectiveOperationException {
+            Object[] values = new Object[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = serializer.readObject(chunkCtx);
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.pkm.userialization.serializer;
+
+import com.pkm.userialization.io.BufferPool;
+import com.pkm.userialization.io.ByteBufferInput;
+import com.pkm.userialization.io.ByteBufferOutput;
+import com.pkm.userialization.io.ChunkedOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Потокобезопасный сериализатор, переиспользующий контексты между вызовами: растущий буфер записи,
+ * словари классов и объектов и временные буферы. Контексты хранятся в пуле без блокировок и без
+ * {@link ThreadLocal}, поэтому число контекстов не зависит от числа потоков (в том числе виртуальных).
+ * Каждый контекст в любой момент используется только одним вызовом.
+ * <p>
+ * Формат данных совпадает с {@link ObjectSerializerImpl} с той же конфигурацией; кадр, записанный в поток,
+ * может иначе делиться на куски.
+ * При включенном сжатии все вызовы выполняются через {@link ObjectSerializerImpl} без переиспользования контекстов.
+ */
+public class PooledObjectSerializer implements ObjectSerializer {
+
+    private static final int DEFAULT_POOL_SIZE = 2 * Runtime.getRuntime().availableProcessors();
+    private static final int INITIAL_BUFFER_CAPACITY = 4096;
+
+    /**
+     * Контексты с буфером записи больше этого размера не возвращаются в пул
+     */
+    private static final int MAX_RETAINED_CAPACITY = 1 << 20;
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final SerializerConfig config;
+    private final ObjectSerializerImpl serializer;
+    private final BufferPool buffers;
+    private final AtomicReferenceArray<PooledContext> contexts;
+    private final int mask;
+    private final boolean compressed;
+
+    public PooledObjectSerializer() {
+        this(SerializerConfig.DEFAULT);
+    }
+
+    public PooledObjectSerializer(SerializerConfig config) {
+        this(config, DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * @param poolSize сколько свободных контекстов хранить; округляется вверх до степени двойки
+     */
+    public PooledObjectSerializer(SerializerConfig config, int poolSize) {
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive: " + poolSize);
+        }
+        int size = Integer.highestOneBit(poolSize - 1) << 1;
+        size = Math.max(1, size);
+        this.config = config;
+        this.serializer = new ObjectSerializerImpl(config);
+        this.buffers = new BufferPool(false, size);
+        this.contexts = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.compressed = config.isCompressed();
+    }
+
+    public byte[] serializeObj(Object obj) throws IOException, ReflectiveOperationException {
+        if (compressed) {
+            return serializer.serializeObj(obj);
+        }
+        PooledContext ctx = acquire();
+        try {
+            ByteBuffer buffer = ctx.write(obj);
+            return Arrays.copyOf(buffer.array(), buffer.position());
+        } finally {
+            release(ctx);
+        }
+    }
+
+    public long serializedSize(Object obj) throws IOException, ReflectiveOperationException {
+        return serializer.serializedSize(obj);
+    }
+
+    public Object deserializeObj(byte[] bytes) throws ReflectiveOperationException, IOException {
+        if (compressed) {
+            return serializer.deserializeObj(bytes);
+        }
+        PooledContext ctx = acquire();
+        try {
+            return ctx.read(ByteBuffer.wrap(bytes));
+        } finally {
+            release(ctx);
+        }
+    }
+
+    /**
+     * Записывает объект целиком в буфер контекста, затем передает его в поток кадром из одного куска
+     */
+    public void serializeObj(Object obj, OutputStream outputStream) throws IOException, ReflectiveOperationException {
+        if (compressed) {
+            serializer.serializeObj(obj, outputStream);
+            return;
+        }
+        PooledContext ctx = acquire();
+        try {
+            ByteBuffer buffer = ctx.write(obj);
+            ChunkedOutputStream.writeFrame(outputStream, buffer.array(), 0, buffer.position());
+        } finally {
+            release(ctx);
+        }
+    }
+
+    /**
+     * Чтение из потока не должно заходить за конец объекта и выполняется без переиспользования контекстов
+     */
+    public Object deserializeObj(InputStream inputStream) throws ReflectiveOperationException, IOException {
+        return serializer.deserializeObj(inputStream);
+    }
+
+    public void serializeObj(Object obj, WritableByteChannel channel) throws IOException, ReflectiveOperationException {
+        if (compressed) {
+            serializer.serializeObj(obj, channel);
+            return;
+        }
+        PooledContext ctx = acquire();
+        try {
+            ByteBuffer buffer = ctx.write(obj);
+            ChunkedOutputStream.writeFrame(Channels.newOutputStream(channel), buffer.array(), 0, buffer.position());
+        } finally {
+            release(ctx);
+        }
+    }
+
+    public Object deserializeObj(ReadableByteChannel channel) throws ReflectiveOperationException, IOException {
+        return serializer.deserializeObj(channel);
+    }
+
+    public void serializeObj(Object obj, ByteBuffer buffer) throws IOException, ReflectiveOperationException {
+        if (compressed) {
+            serializer.serializeObj(obj, buffer);
+            return;
+        }
+        PooledContext ctx = acquire();
+        try {
+            ByteBuffer written = ctx.write(obj);
+            if (written.position() > buffer.remaining()) {
+                throw new BufferOverflowException();
+            }
+            buffer.put(written.array(), 0, written.position());
+        } finally {
+            release(ctx);
+        }
+    }
+
+    public ByteBuffer serializeObj(Object obj, BufferPool pool) throws IOException, ReflectiveOperationException {
+        return serializer.serializeObj(obj, pool);
+    }
+
+    public Object deserializeObj(ByteBuffer buffer) throws ReflectiveOperationException, IOException {
+        if (compressed) {
+            return serializer.deserializeObj(buffer);
+        }
+        PooledContext ctx = acquire();
+        try {
+            ByteBuffer duplicate = buffer.duplicate();
+            Object obj = ctx.read(duplicate);
+            buffer.position(duplicate.position());
+            return obj;
+        } finally {
+            release(ctx);
+        }
+    }
+
+    /**
+     * Пакеты пишутся в собственные контексты без переиспользования: их таблицы живут столько же, сколько пакет
+     */
+    public byte[] serializeBatch(List<?> objects) throws IOException, ReflectiveOperationException {
+        return serializer.serializeBatch(objects);
+    }
+
+    public List<Object> deserializeBatch(byte[] bytes) throws ReflectiveOperationException, IOException {
+        return serializer.deserializeBatch(bytes);
+    }
+
+    public BatchReader readBatch(ByteBuffer buffer) throws IOException {
+        return serializer.readBatch(buffer);
+    }
+
+    public byte[] serializeDelta(Object base, Object current) throws IOException, ReflectiveOperationException {
+        return serializer.serializeDelta(base, current);
+    }
+
+    public Object applyDelta(Object base, byte[] delta) throws ReflectiveOperationException, IOException {
+        return serializer.applyDelta(base, delta);
+    }
+
+    /**
+     * Берет свободный контекст из пула либо создает новый. Поиск начинается со слота,
+     * зависящего от текущего потока, чтобы потоки реже конкурировали за одни и те же слоты.
+     */
+    private PooledContext acquire() {
+        int start = probe();
+        for (int i = 0; i <= mask; i++) {
+            int index = (start + i) & mask;
+            if (contexts.get(index) != null) {
+                PooledContext ctx = contexts.getAndSet(index, null);
+                if (ctx != null) {
+                    return ctx;
+                }
+            }
+        }
+        return new PooledContext();
+    }
+
+    /**
+     * Сбрасывает контекст и возвращает его в свободный слот. Если свободных слотов нет
+     * или буфер контекста слишком вырос, контекст отбрасывается.
+     */
+    private void release(PooledContext ctx) {
+        if (ctx.output.getBuffer().capacity() > MAX_RETAINED_CAPACITY) {
+            return;
+        }
+        ctx.reset();
+        int start = probe();
+        for (int i = 0; i <= mask; i++) {
+            int index = (start + i) & mask;
+            if (contexts.get(index) == null && contexts.compareAndSet(index, null, ctx)) {
+                return;
+            }
+        }
+    }
+
+    private static int probe() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Контексты записи и чтения, привязанные к переиспользуемым буферу записи и входу
+     */
+    private final class PooledContext {
+
+        final ByteBufferOutput output = new ByteBufferOutput(buffers, INITIAL_BUFFER_CAPACITY);
+        final SerializationContext writer = new SerializationContext(output, config);
+        final ByteBufferInput input = new ByteBufferInput(EMPTY);
+        final DeserializationContext reader = new DeserializationContext(input, config);
+
+        /**
+         * Записывает объект и возвращает буфер в куче; данные лежат от нуля до его позиции
+         */
+        ByteBuffer write(Object obj) throws IOException, ReflectiveOperationException {
+            serializer.writeObject(obj, writer);
+            return output.getBuffer();
+        }
+
+        /**
+         * Читает объект с текущей позиции буфера, сдвигая ее
+         */
+        Object read(ByteBuffer buffer) throws IOException, ReflectiveOperationException {
+            input.reset(buffer);
+            return serializer.readObject(reader);
+        }
+
+        void reset() {
+            output.reset();
+            writer.reset();
+            input.reset(EMPTY);
+            reader.reset();
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.pkm.userialization.serializer;
+
+import com.pkm.userialization.io.ByteBufferOutput;
+import com.pkm.userialization.utils.CompactStrings;
+import com.pkm.userialization.utils.VarInts;
+
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Состояние записи одного потока: выход, словарь уже записанных классов и таблица уже записанных объектов
+ */
+class SerializationContext {
+
+    static final String NULL_CLASS_NAME = "null";
+    static final String REFERENCE_CLASS_NAME = "@ref";
+
+    static final int NULL_TAG = 0;
+    static final int REFERENCE_TAG = 1;
+    static final int NEW_CLASS_TAG = 2;
+    static final int FIRST_CLASS_ID_TAG = 3;
+
+    static final int VALUE_NULL = 0;
+    static final int VALUE_PRESENT = 1;
+    static final int VALUE_REFERENCE = 2;
+
+    static final int STRING_LITERAL_TAG = 0;
+
+    static final int SCRATCH_SIZE = 8192;
+
+    /**
+     * Таблицы больше этого размера при {@link #reset()} пересоздаются, а не очищаются,
+     * чтобы один большой граф не замедлял очистку и не удерживал память в переиспользуемом контексте
+     */
+    static final int RETAINED_TABLE_SIZE = 4096;
+
+    private static final int NESTED_INITIAL_CAPACITY = 256;
+
+    final DataOutput out;
+    private final boolean compact;
+    private Map<Class<?>, Integer> classIds;
+    private Map<Object, Integer> handles;
+    private final int stringTableSize;
+    private Map<String, Integer> strings;
+    private byte[] scratch;
+    private SerializationContext nested;
+    private ByteBufferOutput nestedOutput;
+    private ContextOutput typeOutput;
+    private int depth;
+    private int maxDepth;
+
+    SerializationContext(DataOutput out, SerializerConfig config) {
+        this.out = out;
+        this.compact = config.isCompact();
+        this.classIds = config.isClassTable() ? new IdentityHashMap<>() : null;
+        this.handles = config.isReferenceTracking() ? new IdentityHashMap<>() : null;
+        this.stringTableSize = config.getStringTableSize();
+        this.strings = stringTableSize > 0 ? new HashMap<>() : null;
+    }
+
+    private SerializationContext(DataOutput out, boolean compact, int stringTableSize) {
+        this.out = out;
+        this.compact = compact;
+        this.stringTableSize = stringTableSize;
+    }
+
+    /**
+     * Вложенный контекст для записи частей индексированного значения во временный буфер, очищаемый
+     * при каждом вызове. Словари общие с этим контекстом: части переносятся в поток в том же порядке,
+     * в котором пополнялись словари.
+     */
+    SerializationContext nested() {
+        if (nested == null) {
+            nestedOutput = new ByteBufferOutput(NESTED_INITIAL_CAPACITY);
+            nested = new SerializationContext(nestedOutput, compact, stringTableSize);
+        }
+        nestedOutput.reset();
+        nested.classIds = classIds;
+        nested.handles = handles;
+        nested.strings = strings;
+        nested.depth = depth;
+        nested.maxDepth = depth;
+        return nested;
+    }
+
+    /**
+     * Сколько байт записано во вложенный контекст, см. {@link #nested()}
+     */
+    int nestedPosition() {
+        return nestedOutput.position();
+    }
+
+    /**
+     * Переносит в поток все, что записано во вложенный контекст
+     */
+    void writeNested() throws IOException {
+        ByteBuffer buffer = nestedOutput.getBuffer();
+        out.write(buffer.array(), 0, buffer.position());
+    }
+
+    /**
+     * Сколько байт записано в выход, если он ведет счет (DataOutputStream или {@link ByteBufferOutput}), иначе 0.
+     * Используется только при сборе метрик.
+     */
+    long position() {
+        if (out instanceof ByteBufferOutput) {
+            return ((ByteBufferOutput) out).position();
+        }
+        return out instanceof DataOutputStream ? ((DataOutputStream) out).size() : 0;
+    }
+
+    /**
+     * Переход к значению следующего уровня вложенности; возвращает его глубину
+     */
+    int enter() {
+        if (++depth > maxDepth) {
+            maxDepth = depth;
+        }
+        return depth;
+    }
+
+    void exit() {
+        depth--;
+    }
+
+    /**
+     * Наибольшая глубина с последнего вызова; счет начинается заново
+     */
+    int takeMaxDepth() {
+        int max = maxDepth;
+        maxDepth = depth;
+        return max;
+    }
+
+    /**
+     * Продолжает счет глубины родительского контекста, чтобы значения внутри куска не считались корневыми
+     */
+    void inheritDepth(SerializationContext parent) {
+        depth = parent.depth;
+        maxDepth = parent.depth;
+    }
+
+    /**
+     * Учитывает глубину, достигнутую в дочернем контексте
+     */
+    void mergeDepth(SerializationContext child) {
+        maxDepth = Math.max(maxDepth, child.maxDepth);
+    }
+
+    /**
+     * Сбрасывает словарь классов и таблицу объектов, чтобы использовать контекст для записи следующего потока
+     * в тот же выход
+     */
+    void reset() {
+        depth = 0;
+        maxDepth = 0;
+        if (classIds != null) {
+            classIds = classIds.size() > RETAINED_TABLE_SIZE ? new IdentityHashMap<>() : clear(classIds);
+        }
+        if (strings != null) {
+            strings = strings.size() > RETAINED_TABLE_SIZE ? new HashMap<>() : clear(strings);
+        }
+        resetReferences();
+    }
+
+    /**
+     * Сбрасывает только таблицу объектов: следующие записи не ссылаются на уже записанные объекты,
+     * но продолжают пользоваться словарем классов и таблицей строк
+     */
+    void resetReferences() {
+        if (handles != null) {
+            handles = handles.size() > RETAINED_TABLE_SIZE ? new IdentityHashMap<>() : clear(handles);
+        }
+    }
+
+    private static <K> Map<K, Integer> clear(Map<K, Integer> map) {
+        map.clear();
+        return map;
+    }
+
+    /**
+     * Временный буфер для пакетной записи и чтения массивов примитивов
+     */
+    byte[] scratch() {
+        if (scratch == null) {
+            scratch = new byte[SCRATCH_SIZE];
+        }
+        return scratch;
+    }
+
+    /**
+     * Выход для пользовательских {@link TypeSerializer}, создается при первом обращении
+     */
+    TypeOutput typeOutput(ObjectSerializerImpl serializer) {
+        if (typeOutput == null) {
+            typeOutput = new ContextOutput(serializer, this);
+        }
+        return typeOutput;
+    }
+
+    /**
+     * Записывает размер коллекции или длину массива
+     */
+    void writeSize(int size) throws IOException {
+        if (compact) {
+            VarInts.writeUnsignedVarInt(out, size);
+        } else {
+            out.writeInt(size);
+        }
+    }
+
+    void writeInt(int value) throws IOException {
+        if (compact) {
+            VarInts.writeVarInt(out, value);
+        } else {
+            out.writeInt(value);
+        }
+    }
+
+    void writeLong(long value) throws IOException {
+        if (compact) {
+            VarInts.writeVarLong(out, value);
+        } else {
+            out.writeLong(value);
+        }
+    }
+
+    /**
+     * Записывает строковое значение: в компактном режиме - без ограничения длины, иначе через writeUTF.
+     * С таблицей строк повторно встреченная строка записывается номером, а новая - тегом и самой строкой;
+     * новые строки запоминаются, пока таблица не заполнится.
+     */
+    void writeString(String s) throws IOException {
+        if (strings != null) {
+            Integer id = strings.get(s);
+            if (id != null) {
+                VarInts.writeUnsignedVarInt(out, STRING_LITERAL_TAG + 1 + id);
+                return;
+            }
+            VarInts.writeUnsignedVarInt(out, STRING_LITERAL_TAG);
+            if (strings.size() < stringTableSize) {
+                strings.put(s, strings.size());
+            }
+        }
+        if (compact) {
+            CompactStrings.write(out, s, scratch());
+        } else {
+            out.writeUTF(s);
+        }
+    }
+
+    /**
+     * Записывает заголовок значения null
+     */
+    void writeNull() throws IOException {
+        if (classIds == null) {
+            out.writeUTF(NULL_CLASS_NAME);
+        } else {
+            VarInts.writeUnsignedVarInt(out, NULL_TAG);
+        }
+    }
+
+    /**
+     * Записывает класс: полным именем либо номером в словаре классов
+     */
+    void writeClass(Class<?> clazz) throws IOException {
+        if (classIds == null) {
+            out.writeUTF(clazz.getName());
+            return;
+        }
+        Integer id = classIds.get(clazz);
+        if (id != null) {
+            VarInts.writeUnsignedVarInt(out, FIRST_CLASS_ID_TAG + id);
+        } else {
+            classIds.put(clazz, classIds.size());
+            VarInts.writeUnsignedVarInt(out, NEW_CLASS_TAG);
+            out.writeUTF(clazz.getName());
+        }
+    }
+
+    /**
+     * Если объект уже записывался в этот поток, записывает ссылку на него и возвращает true.
+     * Иначе запоминает объект под следующим номером и возвращает false.
+     * При выключенном отслеживании ссылок всегда возвращает false.
+     */
+    boolean writeReference(Object obj) throws IOException {
+        int handle = findHandle(obj);
+        if (handle < 0) {
+            return false;
+        }
+        if (classIds == null) {
+            out.writeUTF(REFERENCE_CLASS_NAME);
+        } else {
+            VarInts.writeUnsignedVarInt(out, REFERENCE_TAG);
+        }
+        VarInts.writeUnsignedVarInt(out, handle);
+        return true;
+    }
+
+    /**
+     * Записывает заголовок значения, класс которого читающая сторона знает из объявления поля:
+     * вместо класса пишется один байт - признак null, ссылки или значения.
+     * Возвращает true, если следом нужно записать само значение.
+     * @param tracked участвует ли значение в отслеживании ссылок
+     */
+    boolean writeKnownClassHeader(Object obj, boolean tracked) throws IOException {
+        if (obj == null) {
+            out.writeByte(VALUE_NULL);
+            return false;
+        }
+        int handle = tracked ? findHandle(obj) : -1;
+        if (handle >= 0) {
+            out.writeByte(VALUE_REFERENCE);
+            VarInts.writeUnsignedVarInt(out, handle);
+            return false;
+        }
+        out.writeByte(VALUE_PRESENT);
+        return true;
+    }
+
+    private int findHandle(Object obj) {
+        if (handles == null) {
+            return -1;
+        }
+        Integer handle = handles.get(obj);
+        if (handle == null) {
+            handles.put(obj, handles.size());
+            return -1;
+        }
+        return handle;
+    }
+}
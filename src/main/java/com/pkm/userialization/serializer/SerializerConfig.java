@@ -0,0 +1,140 @@
+package com.pkm.userialization.serializer;
+
+import com.pkm.userialization.instantiator.DefaultInstantiatorStrategy;
+import com.pkm.userialization.instantiator.InstantiatorStrategy;
+import com.pkm.userialization.metrics.SerializationListener;
+import com.pkm.userialization.resolver.ClassResolver;
+import com.pkm.userialization.resolver.DefaultClassResolver;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Singular;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
+
+/**
+ * Настройки формата сериализации. Сериализатор и десериализатор должны использовать одинаковые настройки.
+ * По умолчанию все настройки выключены, но формат по умолчанию не совпадает с исходным и данные исходного
+ * формата им не читаются: массивы примитивов пишутся длиной, типом элементов и упакованным содержимым,
+ * а для полей, тип значения которых точно известен из объявления (примитивы, final-классы и массивы таких
+ * типов), класс значения не пишется.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class SerializerConfig {
+
+    /**
+     * Формат по умолчанию, см. описание класса
+     */
+    public static final SerializerConfig DEFAULT = SerializerConfig.builder().build();
+
+    /**
+     * Словарь классов в пределах потока: имя класса пишется полностью только при первом появлении,
+     * далее - его номером в словаре.
+     */
+    private final boolean classTable;
+
+    /**
+     * Отслеживание ссылок: объект, встреченный повторно, записывается ссылкой на первое вхождение.
+     * Сохраняет идентичность общих объектов и позволяет сериализовать циклические графы.
+     */
+    private final boolean referenceTracking;
+
+    /**
+     * Компактный формат: int и long пишутся zigzag-varint, размеры коллекций и длины массивов - varint,
+     * строки - с varint-длиной в UTF-8 (или Latin-1) без ограничения в 64 КБ.
+     */
+    private final boolean compact;
+
+    /**
+     * Размер таблицы строк в пределах потока. Если больше нуля, каждая строка (значения и имена констант enum)
+     * предваряется varint-тегом: повторно встреченная строка записывается номером в таблице, а при чтении
+     * возвращается тот же экземпляр, что и при первом вхождении. В таблицу попадают первые stringTableSize
+     * различных строк, остальные пишутся полностью.
+     */
+    private final int stringTableSize;
+
+    /**
+     * Перечисления пишутся номером константы (varint) вместо имени и читаются из таблицы констант класса.
+     * Поля констант при этом не пишутся и не восстанавливаются. Порядок констант в классе должен совпадать
+     * у записывающей и читающей стороны.
+     */
+    private final boolean enumOrdinals;
+
+    /**
+     * Индексированный формат: перед полями объекта, элементами коллекций и массивов объектов и записями map
+     * пишутся смещения каждой части. Это позволяет читать отдельные части через {@link ObjectView},
+     * не восстанавливая весь граф. Каждый уровень вложенности кодируется во временный буфер и копируется,
+     * поэтому запись медленнее обычной.
+     */
+    private final boolean indexed;
+
+    /**
+     * Сжатие: данные записываются кадром из блоков, сжатых {@link Deflater}, см.
+     * {@link com.pkm.userialization.io.BlockCompressingOutputStream}. Чтение распаковывает блоки по одному.
+     * Несовместимо с {@link ObjectView}.
+     */
+    private final boolean compressed;
+
+    /**
+     * Уровень сжатия {@link Deflater}
+     */
+    @Builder.Default
+    private final int compressionLevel = Deflater.BEST_SPEED;
+
+    /**
+     * Размер блока несжатых данных
+     */
+    @Builder.Default
+    private final int compressionBlockSize = 64 * 1024;
+
+    /**
+     * Блоки короче этого размера, в том числе небольшие объекты целиком, записываются без сжатия
+     */
+    @Builder.Default
+    private final int compressionThreshold = 512;
+
+    /**
+     * Если больше нуля, коллекции, map и массивы объектов длиннее этого числа элементов делятся на куски,
+     * которые кодируются и декодируются параллельно в {@link #parallelPool}.
+     * Не действует при включенных {@link #referenceTracking} (ссылки не могут пересекать границы кусков)
+     * и {@link #indexed}.
+     */
+    private final int parallelChunkSize;
+
+    /**
+     * Пул для параллельной обработки кусков
+     */
+    @Builder.Default
+    private final ForkJoinPool parallelPool = ForkJoinPool.commonPool();
+
+    /**
+     * Получатель метрик: размеров, времени и числа значений по классам, глубины и размеров корневых значений,
+     * например {@link com.pkm.userialization.metrics.SerializationMetrics}. Если не задан, метрики не вычисляются.
+     * Не влияет на формат.
+     */
+    private final SerializationListener listener;
+
+    /**
+     * Кодирование отдельных классов, написанное вручную. Заменяет стандартное кодирование класса (в том числе
+     * коллекций, map и enum) и не использует рефлексию. Действует только для указанного класса, не для подклассов.
+     * Набор стандартных реализаций - {@link TypeSerializers}.
+     */
+    @Singular
+    private final Map<Class<?>, TypeSerializer<?>> typeSerializers;
+
+    /**
+     * Способ создания экземпляров при десериализации. Влияет только на чтение. Если стратегия переопределена,
+     * она используется и для стандартных коллекций и map, которые иначе создаются с емкостью под размер.
+     */
+    @Builder.Default
+    private final InstantiatorStrategy instantiatorStrategy = DefaultInstantiatorStrategy.INSTANCE;
+
+    /**
+     * Поиск классов по именам из потока. Влияет только на чтение. Загрузчик классов и список разрешенных
+     * классов задаются в {@link DefaultClassResolver}.
+     */
+    @Builder.Default
+    private final ClassResolver classResolver = DefaultClassResolver.INSTANCE;
+}
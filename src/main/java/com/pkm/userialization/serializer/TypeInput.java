@@ -0,0 +1,20 @@
+package com.pkm.userialization.serializer;
+
+import java.io.DataInput;
+import java.io.IOException;
+
+/**
+ * Вход для {@link TypeSerializer}, парный {@link TypeOutput}
+ */
+public interface TypeInput extends DataInput {
+
+    int readVarInt() throws IOException;
+
+    long readVarLong() throws IOException;
+
+    int readSize() throws IOException;
+
+    String readString() throws IOException;
+
+    Object readObject() throws IOException, ReflectiveOperationException;
+}
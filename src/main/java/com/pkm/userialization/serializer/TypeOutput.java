@@ -0,0 +1,36 @@
+package com.pkm.userialization.serializer;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Выход для {@link TypeSerializer}: методы {@link DataOutput} пишут байты как есть, остальные - в формате
+ * сериализатора с учетом его настроек
+ */
+public interface TypeOutput extends DataOutput {
+
+    /**
+     * zigzag-varint
+     */
+    void writeVarInt(int value) throws IOException;
+
+    /**
+     * zigzag-varint
+     */
+    void writeVarLong(long value) throws IOException;
+
+    /**
+     * Неотрицательное число (размер, длина): varint в компактном формате, иначе int
+     */
+    void writeSize(int size) throws IOException;
+
+    /**
+     * Строка с учетом компактного формата и таблицы строк
+     */
+    void writeString(String s) throws IOException;
+
+    /**
+     * Вложенное значение любого класса вместе с заголовком, в том числе null
+     */
+    void writeObject(Object obj) throws IOException, ReflectiveOperationException;
+}
@@ -0,0 +1,15 @@
+package com.pkm.userialization.serializer;
+
+import java.io.IOException;
+
+/**
+ * Кодирование значений одного класса, написанное вручную, см. {@link SerializerConfig#getTypeSerializers()}.
+ * Заголовок значения (класс, null, ссылку) пишет и читает сериализатор; здесь кодируется только содержимое.
+ * Реализация должна быть потокобезопасной: один экземпляр используется всеми вызовами сериализатора.
+ */
+public interface TypeSerializer<T> {
+
+    void write(T value, TypeOutput out) throws IOException, ReflectiveOperationException;
+
+    T read(TypeInput in) throws IOException, ReflectiveOperationException;
+}
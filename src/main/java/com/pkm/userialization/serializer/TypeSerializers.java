@@ -0,0 +1,162 @@
+package com.pkm.userialization.serializer;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Стандартные {@link TypeSerializer} для распространенных неизменяемых классов JDK. По умолчанию не подключены,
+ * чтобы не менять формат; подключаются через {@link SerializerConfig.SerializerConfigBuilder#typeSerializers(Map)}
+ * набором {@link #JDK} или по одному.
+ */
+public final class TypeSerializers {
+
+    public static final TypeSerializer<UUID> UUID_SERIALIZER = new TypeSerializer<UUID>() {
+        @Override
+        public void write(UUID value, TypeOutput out) throws IOException {
+            out.writeLong(value.getMostSignificantBits());
+            out.writeLong(value.getLeastSignificantBits());
+        }
+
+        @Override
+        public UUID read(TypeInput in) throws IOException {
+            return new UUID(in.readLong(), in.readLong());
+        }
+    };
+
+    /**
+     * Дополнительный код числа: длина и байты
+     */
+    public static final TypeSerializer<BigInteger> BIG_INTEGER = new TypeSerializer<BigInteger>() {
+        @Override
+        public void write(BigInteger value, TypeOutput out) throws IOException {
+            writeBigInteger(value, out);
+        }
+
+        @Override
+        public BigInteger read(TypeInput in) throws IOException {
+            return readBigInteger(in);
+        }
+    };
+
+    /**
+     * Масштаб и немасштабированное значение
+     */
+    public static final TypeSerializer<BigDecimal> BIG_DECIMAL = new TypeSerializer<BigDecimal>() {
+        @Override
+        public void write(BigDecimal value, TypeOutput out) throws IOException {
+            out.writeVarInt(value.scale());
+            writeBigInteger(value.unscaledValue(), out);
+        }
+
+        @Override
+        public BigDecimal read(TypeInput in) throws IOException {
+            int scale = in.readVarInt();
+            return new BigDecimal(readBigInteger(in), scale);
+        }
+    };
+
+    public static final TypeSerializer<Instant> INSTANT = new TypeSerializer<Instant>() {
+        @Override
+        public void write(Instant value, TypeOutput out) throws IOException {
+            out.writeVarLong(value.getEpochSecond());
+            out.writeVarInt(value.getNano());
+        }
+
+        @Override
+        public Instant read(TypeInput in) throws IOException {
+            long seconds = in.readVarLong();
+            return Instant.ofEpochSecond(seconds, in.readVarInt());
+        }
+    };
+
+    public static final TypeSerializer<Duration> DURATION = new TypeSerializer<Duration>() {
+        @Override
+        public void write(Duration value, TypeOutput out) throws IOException {
+            out.writeVarLong(value.getSeconds());
+            out.writeVarInt(value.getNano());
+        }
+
+        @Override
+        public Duration read(TypeInput in) throws IOException {
+            long seconds = in.readVarLong();
+            return Duration.ofSeconds(seconds, in.readVarInt());
+        }
+    };
+
+    public static final TypeSerializer<LocalDate> LOCAL_DATE = new TypeSerializer<LocalDate>() {
+        @Override
+        public void write(LocalDate value, TypeOutput out) throws IOException {
+            out.writeVarLong(value.toEpochDay());
+        }
+
+        @Override
+        public LocalDate read(TypeInput in) throws IOException {
+            return LocalDate.ofEpochDay(in.readVarLong());
+        }
+    };
+
+    public static final TypeSerializer<LocalTime> LOCAL_TIME = new TypeSerializer<LocalTime>() {
+        @Override
+        public void write(LocalTime value, TypeOutput out) throws IOException {
+            out.writeVarLong(value.toNanoOfDay());
+        }
+
+        @Override
+        public LocalTime read(TypeInput in) throws IOException {
+            return LocalTime.ofNanoOfDay(in.readVarLong());
+        }
+    };
+
+    public static final TypeSerializer<LocalDateTime> LOCAL_DATE_TIME = new TypeSerializer<LocalDateTime>() {
+        @Override
+        public void write(LocalDateTime value, TypeOutput out) throws IOException {
+            out.writeVarLong(value.toLocalDate().toEpochDay());
+            out.writeVarLong(value.toLocalTime().toNanoOfDay());
+        }
+
+        @Override
+        public LocalDateTime read(TypeInput in) throws IOException {
+            LocalDate date = LocalDate.ofEpochDay(in.readVarLong());
+            return LocalDateTime.of(date, LocalTime.ofNanoOfDay(in.readVarLong()));
+        }
+    };
+
+    /**
+     * Все стандартные реализации по классам
+     */
+    public static final Map<Class<?>, TypeSerializer<?>> JDK = ImmutableMap.<Class<?>, TypeSerializer<?>>builder()
+            .put(UUID.class, UUID_SERIALIZER)
+            .put(BigInteger.class, BIG_INTEGER)
+            .put(BigDecimal.class, BIG_DECIMAL)
+            .put(Instant.class, INSTANT)
+            .put(Duration.class, DURATION)
+            .put(LocalDate.class, LOCAL_DATE)
+            .put(LocalTime.class, LOCAL_TIME)
+            .put(LocalDateTime.class, LOCAL_DATE_TIME)
+            .build();
+
+    private TypeSerializers() {
+    }
+
+    private static void writeBigInteger(BigInteger value, TypeOutput out) throws IOException {
+        byte[] bytes = value.toByteArray();
+        out.writeSize(bytes.length);
+        out.write(bytes);
+    }
+
+    private static BigInteger readBigInteger(TypeInput in) throws IOException {
+        byte[] bytes = new byte[in.readSize()];
+        in.readFully(bytes);
+        return new BigInteger(bytes);
+    }
+}
@@ -0,0 +1,53 @@
+package com.pkm.userialization.serializer;
+
+import java.io.IOException;
+
+/**
+ * Кодирование значений одного класса: стандартное, по виду класса ({@link ClassDescriptor.Kind}),
+ * или пользовательское ({@link TypeSerializer}). Выбирается один раз на класс и кэшируется сериализатором,
+ * поэтому запись и чтение значения - один поиск в кэше и один вызов без перебора видов.
+ */
+final class ValueCodec {
+
+    /**
+     * Записывает содержимое значения без заголовка
+     */
+    @FunctionalInterface
+    interface Writer {
+        void write(Object obj, SerializationContext ctx) throws IOException, ReflectiveOperationException;
+    }
+
+    /**
+     * Читает содержимое значения; handle - номер, зарезервированный для значения, или -1
+     */
+    @FunctionalInterface
+    interface Reader {
+        Object read(int handle, DeserializationContext ctx) throws IOException, ReflectiveOperationException;
+    }
+
+    /**
+     * Класс, который пишется в заголовке значения; для констант перечисления с телом - само перечисление
+     */
+    final Class<?> type;
+
+    /**
+     * Значение не участвует в отслеживании ссылок
+     */
+    final boolean valueType;
+
+    /**
+     * Кодирование задано пользователем
+     */
+    final boolean custom;
+
+    final Writer writer;
+    final Reader reader;
+
+    ValueCodec(Class<?> type, boolean valueType, boolean custom, Writer writer, Reader reader) {
+        this.type = type;
+        this.valueType = valueType;
+        this.custom = custom;
+        this.writer = writer;
+        this.reader = reader;
+    }
+}
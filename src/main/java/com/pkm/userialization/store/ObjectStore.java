@@ -0,0 +1,302 @@
+package com.pkm.userialization.store;
+
+import com.pkm.userialization.io.ByteBufferInput;
+import com.pkm.userialization.io.ByteBufferOutput;
+import com.pkm.userialization.serializer.ObjectSerializer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Хранилище объектов по строковому ключу в каталоге из сегментов, отображенных в память.
+ * <p>
+ * Записи только дописываются в конец текущего сегмента; когда он заполняется, создается следующий.
+ * Формат записи: int-длина остатка записи, байт типа ({@link #VALUE} или {@link #TOMBSTONE}),
+ * ключ в формате writeUTF и, для значения, объект в формате сериализатора. Длина записывается последней,
+ * поэтому недописанная запись при следующем открытии отбрасывается.
+ * <p>
+ * Индекс ключ-положение хранится в памяти и восстанавливается при открытии просмотром сегментов.
+ * Объекты сериализуются прямо в отображенный буфер и читаются из него без копирования.
+ * {@link #compact()} переносит живые записи из старых сегментов в новые без перекодирования и удаляет старые.
+ * <p>
+ * Чтение потокобезопасно и не блокируется; запись, удаление и уплотнение синхронизированы.
+ * Читать и писать нужно сериализатором с одной и той же конфигурацией.
+ */
+public class ObjectStore implements Closeable {
+
+    static final byte VALUE = 1;
+    static final byte TOMBSTONE = 2;
+
+    private static final int LENGTH_SIZE = 4;
+
+    private final Path directory;
+    private final ObjectSerializer serializer;
+    private final int segmentSize;
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private Segment active;
+
+    private ObjectStore(Path directory, ObjectSerializer serializer, int segmentSize) {
+        this.directory = directory;
+        this.serializer = serializer;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Открывает хранилище в каталоге, создавая его при необходимости, и восстанавливает индекс
+     * @param segmentSize размер нового сегмента в байтах; запись должна помещаться в один сегмент
+     */
+    public static ObjectStore open(Path directory, ObjectSerializer serializer, int segmentSize) throws IOException {
+        if (segmentSize <= LENGTH_SIZE) {
+            throw new IllegalArgumentException("Segment size is too small: " + segmentSize);
+        }
+        Files.createDirectories(directory);
+        ObjectStore store = new ObjectStore(directory, serializer, segmentSize);
+        store.load();
+        return store;
+    }
+
+    private void load() throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                int id = Segment.idOf(file);
+                if (id >= 0) {
+                    ids.add(id);
+                }
+            }
+        }
+        Collections.sort(ids);
+        for (int id : ids) {
+            Segment segment = Segment.open(directory, id, segmentSize);
+            segments.put(id, segment);
+            scan(segment);
+        }
+        active = segments.isEmpty() ? roll() : segments.lastEntry().getValue();
+    }
+
+    /**
+     * Просматривает записи сегмента, обновляя индекс, и устанавливает позицию записи на конец данных
+     */
+    private void scan(Segment segment) throws IOException {
+        ByteBuffer buffer = segment.buffer;
+        int position = 0;
+        while (position + LENGTH_SIZE < segment.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + LENGTH_SIZE + length > segment.capacity()) {
+                break;
+            }
+            int end = position + LENGTH_SIZE + length;
+            ByteBufferInput input = new ByteBufferInput(slice(buffer, position + LENGTH_SIZE, end));
+            byte type = input.readByte();
+            String key = input.readUTF();
+            if (type == TOMBSTONE) {
+                index.remove(key);
+            } else {
+                index.put(key, new Location(segment, position, input.getBuffer().position(), end));
+            }
+            position = end;
+        }
+        segment.position = position;
+    }
+
+    /**
+     * Читает объект по ключу прямо из отображенного сегмента; null, если ключа нет
+     */
+    public Object get(String key) throws IOException, ReflectiveOperationException {
+        Location location = index.get(key);
+        if (location == null) {
+            return null;
+        }
+        return serializer.deserializeObj(slice(location.segment.buffer, location.valueStart, location.end));
+    }
+
+    public boolean contains(String key) {
+        return index.containsKey(key);
+    }
+
+    /**
+     * Количество ключей
+     */
+    public int size() {
+        return index.size();
+    }
+
+    public Set<String> keys() {
+        return Collections.unmodifiableSet(index.keySet());
+    }
+
+    /**
+     * Количество файлов сегментов
+     */
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Сериализует объект в конец текущего сегмента и связывает его с ключом
+     */
+    public synchronized void put(String key, Object value) throws IOException, ReflectiveOperationException {
+        index.put(key, append(VALUE, key, value));
+    }
+
+    /**
+     * Удаляет ключ, дописывая запись-надгробие
+     */
+    public synchronized void remove(String key) throws IOException, ReflectiveOperationException {
+        if (index.remove(key) != null) {
+            append(TOMBSTONE, key, null);
+        }
+    }
+
+    /**
+     * Переносит живые записи из всех сегментов, кроме новых, в новые сегменты побайтно и удаляет старые файлы.
+     * Старые файлы удаляются только после сброса новых сегментов на диск и по возрастанию номера, поэтому
+     * сбой посреди уплотнения не теряет записи и не возвращает удаленные ключи.
+     * Чтения, начатые до уплотнения, продолжают работать: отображение удаленного файла остается в памяти.
+     */
+    public synchronized void compact() throws IOException {
+        int firstNewId = segments.lastKey() + 1;
+        active = roll();
+        for (Map.Entry<String, Location> entry : index.entrySet()) {
+            if (entry.getValue().segment.id < firstNewId) {
+                entry.setValue(copy(entry.getValue()));
+            }
+        }
+        for (Segment segment : segments.tailMap(firstNewId).values()) {
+            segment.buffer.force();
+        }
+        Iterator<Segment> old = segments.headMap(firstNewId).values().iterator();
+        while (old.hasNext()) {
+            Segment segment = old.next();
+            old.remove();
+            segment.delete();
+        }
+    }
+
+    /**
+     * Сбрасывает измененные страницы сегментов на диск
+     */
+    public synchronized void force() {
+        for (Segment segment : segments.values()) {
+            segment.buffer.force();
+        }
+    }
+
+    /**
+     * Сбрасывает данные на диск. Отображения освобождаются сборщиком мусора.
+     */
+    @Override
+    public synchronized void close() {
+        force();
+        segments.clear();
+        index.clear();
+    }
+
+    private Location append(byte type, String key, Object value) throws IOException, ReflectiveOperationException {
+        try {
+            return write(type, key, value);
+        } catch (BufferOverflowException e) {
+            if (active.position == 0) {
+                throw new IOException("Record for key " + key + " does not fit into a segment of " + segmentSize + " bytes");
+            }
+            active = roll();
+            try {
+                return write(type, key, value);
+            } catch (BufferOverflowException again) {
+                throw new IOException("Record for key " + key + " does not fit into a segment of " + segmentSize + " bytes");
+            }
+        }
+    }
+
+    /**
+     * Пишет запись в текущий сегмент; длина записи пишется последней.
+     * Если запись не удалась, ее заголовок затирается нулями. Байты объекта, записанные сериализатором
+     * до ошибки, остаются, поэтому после каждой записи в место длины следующей записи пишется 0:
+     * просмотр при открытии останавливается на нем и не принимает остатки неудавшейся записи за запись.
+     * @throws BufferOverflowException если запись не поместилась; позиция сегмента при этом не меняется
+     */
+    private Location write(byte type, String key, Object value) throws IOException, ReflectiveOperationException {
+        int start = active.position;
+        ByteBuffer buffer = active.buffer.duplicate();
+        buffer.position(start + LENGTH_SIZE);
+        int valueStart;
+        try {
+            ByteBufferOutput output = new ByteBufferOutput(buffer);
+            output.writeByte(type);
+            output.writeUTF(key);
+            valueStart = buffer.position();
+            if (type == VALUE) {
+                serializer.serializeObj(value, buffer);
+            }
+        } catch (IOException | ReflectiveOperationException | RuntimeException e) {
+            zero(active.buffer, start + LENGTH_SIZE, buffer.position());
+            throw e;
+        }
+        int end = buffer.position();
+        if (end + LENGTH_SIZE <= active.capacity()) {
+            active.buffer.putInt(end, 0);
+        }
+        active.buffer.putInt(start, end - start - LENGTH_SIZE);
+        active.position = end;
+        return new Location(active, start, valueStart, end);
+    }
+
+    private Location copy(Location location) throws IOException {
+        int length = location.end - location.start;
+        if (active.capacity() - active.position < length) {
+            active = roll();
+        }
+        int start = active.position;
+        ByteBuffer target = active.buffer.duplicate();
+        target.position(start);
+        target.put(slice(location.segment.buffer, location.start, location.end));
+        active.position = start + length;
+        return new Location(active, start, start + location.valueStart - location.start, start + length);
+    }
+
+    private Segment roll() throws IOException {
+        int id = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+        Segment segment = Segment.open(directory, id, segmentSize);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private static void zero(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            buffer.put(i, (byte) 0);
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int from, int to) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(to);
+        slice.position(from);
+        return slice;
+    }
+
+    /**
+     * Положение записи: начало записи, начало значения и конец записи в сегменте
+     */
+    private static final class Location {
+
+        final Segment segment;
+        final int start;
+        final int valueStart;
+        final int end;
+
+        Location(Segment segment, int start, int valueStart, int end) {
+            this.segment = segment;
+            this.start = start;
+            this.valueStart = valueStart;
+            this.end = end;
+        }
+    }
+}
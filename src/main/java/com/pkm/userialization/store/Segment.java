@@ -0,0 +1,81 @@
+package com.pkm.userialization.store;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Файл сегмента хранилища, целиком отображенный в память. Записи идут подряд с начала файла;
+ * незаполненный остаток файла состоит из нулей, поэтому нулевая длина записи означает конец данных.
+ */
+final class Segment {
+
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".dat";
+
+    final int id;
+    final Path path;
+    final MappedByteBuffer buffer;
+
+    /**
+     * Позиция, с которой будет записана следующая запись
+     */
+    int position;
+
+    private Segment(int id, Path path, MappedByteBuffer buffer) {
+        this.id = id;
+        this.path = path;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Открывает существующий сегмент или создает новый указанного размера.
+     * Канал закрывается сразу после отображения: отображение остается действительным.
+     */
+    static Segment open(Path directory, int id, int size) throws IOException {
+        Path path = directory.resolve(fileName(id));
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long length = Math.max(channel.size(), size);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            return new Segment(id, path, buffer);
+        }
+    }
+
+    static String fileName(int id) {
+        return String.format("%s%08d%s", PREFIX, id, SUFFIX);
+    }
+
+    /**
+     * Номер сегмента по имени файла или -1, если файл не является сегментом
+     */
+    static int idOf(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Override
+    public String toString() {
+        return path.getFileName() + "@" + position;
+    }
+}
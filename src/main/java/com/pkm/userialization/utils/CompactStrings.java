@@ -0,0 +1,144 @@
+package com.pkm.userialization.utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Компактная запись строк произвольной длины.
+ * Заголовок - varint {@code (длина в байтах << 1) | latin1}. Строки, все символы которых помещаются в Latin-1,
+ * пишутся по одному байту на символ без кодирования; остальные - в UTF-8. Непарные суррогаты, которых
+ * в UTF-8 нет, пишутся тремя байтами, как в модифицированной UTF-8, поэтому любая строка читается без потерь.
+ */
+public class CompactStrings {
+
+    public static void write(DataOutput out, String s, byte[] scratch) throws IOException {
+        int length = s.length();
+        if (isLatin1(s)) {
+            VarInts.writeUnsignedVarInt(out, length << 1 | 1);
+            for (int off = 0; off < length; off += scratch.length) {
+                int n = Math.min(scratch.length, length - off);
+                for (int i = 0; i < n; i++) {
+                    scratch[i] = (byte) s.charAt(off + i);
+                }
+                out.write(scratch, 0, n);
+            }
+        } else {
+            int utfLength = utfLength(s);
+            byte[] bytes = utfLength <= scratch.length ? scratch : new byte[utfLength];
+            encode(s, bytes);
+            VarInts.writeUnsignedVarInt(out, utfLength << 1);
+            out.write(bytes, 0, utfLength);
+        }
+    }
+
+    public static String read(DataInput in, byte[] scratch) throws IOException {
+        int header = VarInts.readUnsignedVarInt(in);
+        int length = header >>> 1;
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        in.readFully(bytes, 0, length);
+        if ((header & 1) != 0) {
+            return new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+        }
+        return decode(bytes, length);
+    }
+
+    private static boolean isLatin1(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSurrogatePair(String s, int i) {
+        return Character.isHighSurrogate(s.charAt(i)) && i + 1 < s.length()
+                && Character.isLowSurrogate(s.charAt(i + 1));
+    }
+
+    private static int utfLength(String s) {
+        int utfLength = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                utfLength++;
+            } else if (c < 0x800) {
+                utfLength += 2;
+            } else if (isSurrogatePair(s, i)) {
+                utfLength += 4;
+                i++;
+            } else {
+                utfLength += 3;
+            }
+        }
+        return utfLength;
+    }
+
+    private static void encode(String s, byte[] bytes) {
+        int p = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                bytes[p++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[p++] = (byte) (0xC0 | c >> 6);
+                bytes[p++] = (byte) (0x80 | c & 0x3F);
+            } else if (isSurrogatePair(s, i)) {
+                int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                bytes[p++] = (byte) (0xF0 | codePoint >> 18);
+                bytes[p++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                bytes[p++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                bytes[p++] = (byte) (0x80 | codePoint & 0x3F);
+            } else {
+                bytes[p++] = (byte) (0xE0 | c >> 12);
+                bytes[p++] = (byte) (0x80 | c >> 6 & 0x3F);
+                bytes[p++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+    }
+
+    private static String decode(byte[] bytes, int length) throws UTFDataFormatException {
+        char[] chars = new char[length];
+        int n = 0;
+        int i = 0;
+        while (i < length) {
+            int b = bytes[i] & 0xFF;
+            if (b < 0x80) {
+                chars[n++] = (char) b;
+                i++;
+            } else if ((b & 0xE0) == 0xC0) {
+                chars[n++] = (char) ((b & 0x1F) << 6 | continuation(bytes, length, i + 1));
+                i += 2;
+            } else if ((b & 0xF0) == 0xE0) {
+                chars[n++] = (char) ((b & 0x0F) << 12 | continuation(bytes, length, i + 1) << 6
+                        | continuation(bytes, length, i + 2));
+                i += 3;
+            } else if ((b & 0xF8) == 0xF0) {
+                int codePoint = (b & 0x07) << 18 | continuation(bytes, length, i + 1) << 12
+                        | continuation(bytes, length, i + 2) << 6 | continuation(bytes, length, i + 3);
+                if (!Character.isSupplementaryCodePoint(codePoint)) {
+                    throw new UTFDataFormatException("Malformed input around byte " + i);
+                }
+                chars[n++] = Character.highSurrogate(codePoint);
+                chars[n++] = Character.lowSurrogate(codePoint);
+                i += 4;
+            } else {
+                throw new UTFDataFormatException("Malformed input around byte " + i);
+            }
+        }
+        return new String(chars, 0, n);
+    }
+
+    /**
+     * Значащие 6 бит продолжающего байта последовательности
+     */
+    private static int continuation(byte[] bytes, int length, int i) throws UTFDataFormatException {
+        if (i >= length || (bytes[i] & 0xC0) != 0x80) {
+            throw new UTFDataFormatException("Malformed input around byte " + i);
+        }
+        return bytes[i] & 0x3F;
+    }
+}
@@ -0,0 +1,148 @@
+package com.pkm.userialization.utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+
+/**
+ * Пакетная запись и чтение массивов примитивов без упаковки элементов.
+ * Элементы пишутся подряд в порядке big-endian (как в {@link DataOutput}), boolean - по 8 в байте.
+ * Данные проходят через буфер {@code scratch} кусками его размера.
+ */
+public class PrimitiveArrays {
+
+    /**
+     * Записывает содержимое массива примитивов (без длины)
+     */
+    public static void write(DataOutput out, Object array, byte[] scratch) throws IOException {
+        Class<?> componentType = array.getClass().getComponentType();
+        if (componentType == byte.class) {
+            out.write((byte[]) array);
+            return;
+        }
+        if (componentType == boolean.class) {
+            writeBooleans(out, (boolean[]) array, scratch);
+            return;
+        }
+
+        int length = Array.getLength(array);
+        int elemSize = sizeOf(componentType);
+        int chunk = scratch.length / elemSize;
+        ByteBuffer buffer = ByteBuffer.wrap(scratch);
+        for (int off = 0; off < length; off += chunk) {
+            int n = Math.min(chunk, length - off);
+            buffer.clear();
+            if (componentType == int.class) {
+                buffer.asIntBuffer().put((int[]) array, off, n);
+            } else if (componentType == long.class) {
+                buffer.asLongBuffer().put((long[]) array, off, n);
+            } else if (componentType == double.class) {
+                buffer.asDoubleBuffer().put((double[]) array, off, n);
+            } else if (componentType == float.class) {
+                buffer.asFloatBuffer().put((float[]) array, off, n);
+            } else if (componentType == short.class) {
+                buffer.asShortBuffer().put((short[]) array, off, n);
+            } else {
+                buffer.asCharBuffer().put((char[]) array, off, n);
+            }
+            out.write(scratch, 0, n * elemSize);
+        }
+    }
+
+    /**
+     * Читает массив примитивов указанного типа и длины, записанный {@link #write(DataOutput, Object, byte[])}
+     */
+    public static Object read(DataInput in, Class<?> componentType, int length, byte[] scratch) throws IOException {
+        if (componentType == byte.class) {
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return bytes;
+        }
+        if (componentType == boolean.class) {
+            return readBooleans(in, length, scratch);
+        }
+
+        Object array = Array.newInstance(componentType, length);
+        int elemSize = sizeOf(componentType);
+        int chunk = scratch.length / elemSize;
+        ByteBuffer buffer = ByteBuffer.wrap(scratch);
+        for (int off = 0; off < length; off += chunk) {
+            int n = Math.min(chunk, length - off);
+            in.readFully(scratch, 0, n * elemSize);
+            buffer.clear();
+            if (componentType == int.class) {
+                buffer.asIntBuffer().get((int[]) array, off, n);
+            } else if (componentType == long.class) {
+                buffer.asLongBuffer().get((long[]) array, off, n);
+            } else if (componentType == double.class) {
+                buffer.asDoubleBuffer().get((double[]) array, off, n);
+            } else if (componentType == float.class) {
+                buffer.asFloatBuffer().get((float[]) array, off, n);
+            } else if (componentType == short.class) {
+                buffer.asShortBuffer().get((short[]) array, off, n);
+            } else {
+                buffer.asCharBuffer().get((char[]) array, off, n);
+            }
+        }
+        return array;
+    }
+
+    /**
+     * Возвращает размер в байтах содержимого массива примитивов указанного типа и длины
+     */
+    public static long sizeOf(Class<?> componentType, int length) {
+        if (componentType == boolean.class) {
+            return (length + 7) / 8;
+        }
+        return (long) length * sizeOf(componentType);
+    }
+
+    private static int sizeOf(Class<?> componentType) {
+        if (componentType == long.class || componentType == double.class) {
+            return 8;
+        } else if (componentType == int.class || componentType == float.class) {
+            return 4;
+        } else if (componentType == short.class || componentType == char.class) {
+            return 2;
+        } else if (componentType == byte.class) {
+            return 1;
+        } else {
+            throw new IllegalArgumentException(String.valueOf(componentType));
+        }
+    }
+
+    private static void writeBooleans(DataOutput out, boolean[] array, byte[] scratch) throws IOException {
+        int pos = 0;
+        for (int i = 0; i < array.length; i += 8) {
+            int packed = 0;
+            for (int bit = 0; bit < 8 && i + bit < array.length; bit++) {
+                if (array[i + bit]) {
+                    packed |= 1 << bit;
+                }
+            }
+            scratch[pos++] = (byte) packed;
+            if (pos == scratch.length) {
+                out.write(scratch, 0, pos);
+                pos = 0;
+            }
+        }
+        out.write(scratch, 0, pos);
+    }
+
+    private static boolean[] readBooleans(DataInput in, int length, byte[] scratch) throws IOException {
+        boolean[] array = new boolean[length];
+        int i = 0;
+        while (i < length) {
+            int n = Math.min(scratch.length, (length - i + 7) / 8);
+            in.readFully(scratch, 0, n);
+            for (int k = 0; k < n; k++) {
+                for (int bit = 0; bit < 8 && i < length; bit++) {
+                    array[i++] = (scratch[k] & (1 << bit)) != 0;
+                }
+            }
+        }
+        return array;
+    }
+}
@@ -1,5 +1,7 @@
 package com.pkm.userialization.utils;
 
+import com.google.common.base.Defaults;
+
 import java.lang.reflect.*;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -45,34 +47,52 @@ public class ReflectionUtils {
                     .anyMatch(c -> c.getParameterCount() == 0);
     }
 
+    /**
+     * Возвращает конструктор без аргументов указанного класса или null, если его нет
+     */
+    public static Constructor<?> getNoArgsConstructor(Class<?> clazz) {
+        return Arrays.stream(clazz.getDeclaredConstructors())
+                    .filter(c -> c.getParameterCount() == 0)
+                    .findFirst()
+                    .orElse(null);
+    }
+
+    /**
+     * Возвращает конструктор с минимальным ненулевым числом аргументов или null, если его нет
+     */
+    public static Constructor<?> getMinArgsConstructor(Class<?> clazz) {
+        return Arrays.stream(clazz.getDeclaredConstructors())
+                    .filter(c -> c.getParameterCount() != 0)
+                    .min(Comparator.comparingInt(Constructor::getParameterCount))
+                    .orElse(null);
+    }
+
+    /**
+     * Возвращает массив дефолтных значений для параметров конструктора:
+     * null - для объектов, 0 - для примитивов, false - для boolean.
+     */
+    public static Object[] getDefaultArguments(Constructor<?> constructor) {
+        Parameter[] parameters = constructor.getParameters();
+        Object[] params = new Object[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            params[i] = Defaults.defaultValue(parameters[i].getType());
+        }
+        return params;
+    }
+
     /**
      * Возвращает новый экземпляр класса, созданный без использования конструктора без аргументов.
      * Поля заполняются дефолтными значениями: null - для объектов, 0 - для примитивов.
      */
     public static Object newInstanceWithoutNoArgsConstructor(Class<?> clazz) throws ReflectiveOperationException {
-        Optional<Constructor<?>> constructorOpt = Arrays.stream(clazz.getDeclaredConstructors())
-                                                        .filter(c -> c.getParameterCount() != 0)
-                                                        .min(Comparator.comparingInt(Constructor::getParameterCount));
-
-        Constructor<?> constructor = constructorOpt.orElseThrow(NoSuchMethodException::new);
+        Constructor<?> constructor = getMinArgsConstructor(clazz);
+        if (constructor == null) {
+            throw new NoSuchMethodException();
+        }
         if (!constructor.isAccessible()) {
             constructor.setAccessible(true);
         }
-        Parameter[] parameters = constructor.getParameters();
-        Object[] params = new Object[parameters.length];
-        for (int i = 0; i < parameters.length; i++) {
-            Class<?> paramClass = parameters[i].getType();
-            if (paramClass.isPrimitive()){
-                if (paramClass == boolean.class) {
-                    params[i] = false;
-                } else {
-                    params[i] = 0;
-                }
-            } else {
-                params[i] = null;
-            }
-        }
-        return constructor.newInstance(params);
+        return constructor.newInstance(getDefaultArguments(constructor));
     }
 
     /**
@@ -0,0 +1,88 @@
+package com.pkm.userialization.utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Кодирование целых чисел переменной длины (по 7 бит на байт, старший бит - признак продолжения).
+ * Знаковые числа предварительно кодируются zigzag, чтобы небольшие по модулю отрицательные числа тоже были короткими.
+ */
+public class VarInts {
+
+    /**
+     * Записывает неотрицательное (беззнаковое) число, занимая от 1 до 5 байт
+     */
+    public static void writeUnsignedVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Читает число, записанное {@link #writeUnsignedVarInt(DataOutput, int)}
+     */
+    public static int readUnsignedVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * Записывает беззнаковое long-число, занимая от 1 до 10 байт
+     */
+    public static void writeUnsignedVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte(((int) value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Читает число, записанное {@link #writeUnsignedVarLong(DataOutput, long)}
+     */
+    public static long readUnsignedVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varlong");
+    }
+
+    /**
+     * Записывает знаковое число в zigzag-кодировке
+     */
+    public static void writeVarInt(DataOutput out, int value) throws IOException {
+        writeUnsignedVarInt(out, (value << 1) ^ (value >> 31));
+    }
+
+    public static int readVarInt(DataInput in) throws IOException {
+        int raw = readUnsignedVarInt(in);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    /**
+     * Записывает знаковое long-число в zigzag-кодировке
+     */
+    public static void writeVarLong(DataOutput out, long value) throws IOException {
+        writeUnsignedVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    public static long readVarLong(DataInput in) throws IOException {
+        long raw = readUnsignedVarLong(in);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+}
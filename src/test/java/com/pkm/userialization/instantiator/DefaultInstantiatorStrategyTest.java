@@ -0,0 +1,62 @@
+package com.pkm.userialization.instantiator;
+
+import com.pkm.userialization.testclasses.Certificate;
+import com.pkm.userialization.testclasses.House;
+import com.pkm.userialization.testclasses.Student;
+import lombok.SneakyThrows;
+import org.junit.Test;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+public class DefaultInstantiatorStrategyTest {
+
+    private final InstantiatorStrategy strategy = DefaultInstantiatorStrategy.INSTANCE;
+
+    @Test
+    @SneakyThrows
+    public void noArgsConstructor() {
+        assertTrue(strategy.instantiatorFor(Student.class).newInstance() instanceof Student);
+        assertTrue(strategy.instantiatorFor(ArrayList.class).newInstance() instanceof ArrayList);
+    }
+
+    @Test
+    @SneakyThrows
+    public void withoutNoArgsConstructor() {
+        House house = (House) strategy.instantiatorFor(House.class).newInstance();
+        assertNull(house.getAddress());
+        assertEquals(0, house.getNumberOfFloors());
+        assertFalse(house.isStone());
+    }
+
+    @Test
+    @SneakyThrows
+    public void minArgsConstructorFallback() {
+        Instantiator instantiator = DefaultInstantiatorStrategy.minArgsInstantiator(House.class);
+        House first = (House) instantiator.newInstance();
+        House second = (House) instantiator.newInstance();
+
+        assertNotSame(first, second);
+        assertNull(second.getAddress());
+        assertEquals(0, second.getNumberOfFloors());
+        assertFalse(second.isStone());
+    }
+
+    @Test
+    @SneakyThrows
+    public void constructorIsNotCalled() {
+        int createdCount = Certificate.createdCount;
+        Certificate certificate = (Certificate) strategy.instantiatorFor(Certificate.class).newInstance();
+
+        assertNull(certificate.getTitle());
+        assertEquals(createdCount, Certificate.createdCount);
+    }
+
+    @Test(expected = InstantiationException.class)
+    @SneakyThrows
+    public void abstractClass() {
+        strategy.instantiatorFor(AbstractList.class).newInstance();
+    }
+}
@@ -0,0 +1,67 @@
+package com.pkm.userialization.io;
+
+import lombok.SneakyThrows;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BlockCompressingOutputStreamTest {
+
+    @SneakyThrows
+    private static byte[] compress(byte[] data, int blockSize, int threshold) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (BlockCompressingOutputStream out = new BlockCompressingOutputStream(baos, 1, blockSize, threshold)) {
+            out.write(data, 0, data.length / 2);
+            for (int i = data.length / 2; i < data.length; i++) {
+                out.write(data[i]);
+            }
+            out.finish();
+        }
+        return baos.toByteArray();
+    }
+
+    @Test
+    @SneakyThrows
+    public void roundTrip() {
+        byte[] repetitive = new byte[100_000];
+        for (int i = 0; i < repetitive.length; i++) {
+            repetitive[i] = (byte) ("com.pkm.userialization".charAt(i % 22));
+        }
+        byte[] random = new byte[10_000];
+        new Random(42).nextBytes(random);
+
+        for (byte[] data : new byte[][]{repetitive, random, new byte[0], new byte[]{1, 2, 3}}) {
+            byte[] compressed = compress(data, 4096, 64);
+            byte[] frame = new byte[compressed.length + 1];
+            System.arraycopy(compressed, 0, frame, 0, compressed.length);
+            frame[compressed.length] = 42;
+            ByteArrayInputStream source = new ByteArrayInputStream(frame);
+
+            byte[] restored = new byte[data.length];
+            try (BlockDecompressingInputStream in = new BlockDecompressingInputStream(source)) {
+                new DataInputStream(in).readFully(restored);
+                assertEquals(-1, in.read());
+            }
+
+            assertArrayEquals(data, restored);
+            assertEquals(42, source.read());
+        }
+        assertTrue(compress(repetitive, 4096, 64).length * 20 < repetitive.length);
+        assertTrue(compress(random, 4096, 64).length < random.length + 16);
+    }
+
+    @Test
+    @SneakyThrows
+    public void smallBlocksAreStored() {
+        byte[] data = new byte[100];
+        byte[] compressed = compress(data, 4096, 128);
+
+        assertEquals(BlockCompressingOutputStream.STORED, compressed[0]);
+        assertEquals(data.length + 3, compressed.length);
+    }
+}
@@ -0,0 +1,80 @@
+package com.pkm.userialization.io;
+
+import lombok.SneakyThrows;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ByteBufferOutputTest {
+
+    @SneakyThrows
+    private static void writeSample(DataOutput out) {
+        out.writeBoolean(true);
+        out.writeByte(-5);
+        out.writeShort(1234);
+        out.writeChar('Ы');
+        out.writeInt(540333);
+        out.writeLong(42412553421341232L);
+        out.writeFloat(3.21f);
+        out.writeDouble(4.3221);
+        out.writeUTF("Строка \u0000 with null");
+        out.write(new byte[]{1, 2, 3});
+    }
+
+    @Test
+    @SneakyThrows
+    public void sameFormatAsDataOutputStream() {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        writeSample(new DataOutputStream(baos));
+
+        ByteBufferOutput output = new ByteBufferOutput(new BufferPool(false, 2), 1);
+        writeSample(output);
+        ByteBuffer buffer = output.getBuffer();
+        buffer.flip();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+
+        assertArrayEquals(baos.toByteArray(), bytes);
+    }
+
+    @Test
+    @SneakyThrows
+    public void readBack() {
+        ByteBufferOutput output = new ByteBufferOutput(ByteBuffer.allocateDirect(128));
+        writeSample(output);
+        ByteBuffer buffer = output.getBuffer();
+        buffer.flip();
+
+        ByteBufferInput input = new ByteBufferInput(buffer);
+        assertTrue(input.readBoolean());
+        assertEquals(-5, input.readByte());
+        assertEquals(1234, input.readShort());
+        assertEquals('Ы', input.readChar());
+        assertEquals(540333, input.readInt());
+        assertEquals(42412553421341232L, input.readLong());
+        assertEquals(3.21f, input.readFloat(), 0.0001);
+        assertEquals(4.3221, input.readDouble(), 0.0001);
+        assertEquals("Строка \u0000 with null", input.readUTF());
+        byte[] tail = new byte[3];
+        input.readFully(tail);
+        assertTrue(Arrays.equals(new byte[]{1, 2, 3}, tail));
+        assertEquals(-1, input.read());
+    }
+
+    @Test
+    public void poolRecyclesBuffers() {
+        BufferPool pool = new BufferPool(false, 1);
+        ByteBuffer buffer = pool.acquire(3000);
+        assertEquals(4096, buffer.capacity());
+
+        pool.release(buffer);
+        assertSame(buffer, pool.acquire(2049));
+        assertNotSame(buffer, pool.acquire(2049));
+    }
+}
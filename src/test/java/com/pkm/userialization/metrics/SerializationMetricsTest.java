@@ -0,0 +1,105 @@
+package com.pkm.userialization.metrics;
+
+import com.pkm.userialization.serializer.ObjectSerializer;
+import com.pkm.userialization.serializer.ObjectSerializerImpl;
+import com.pkm.userialization.serializer.SerializerConfig;
+import com.pkm.userialization.testclasses.Gender;
+import com.pkm.userialization.testclasses.Student;
+import com.pkm.userialization.testclasses.University;
+import lombok.SneakyThrows;
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.*;
+
+public class SerializationMetricsTest {
+
+    private static List<Student> students(int count) {
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Student student = new Student("ФПМ", new University("ДНУ", i % 3));
+            student.setGender(Gender.MALE);
+            students.add(student);
+        }
+        return students;
+    }
+
+    private static ClassStatistics statisticsOf(SerializationMetrics metrics, Class<?> type) {
+        return metrics.getClassStatistics().stream()
+                .filter(statistics -> statistics.getType().equals(type.getName()))
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+    }
+
+    @Test
+    @SneakyThrows
+    public void collectsStatisticsPerClass() {
+        SerializerConfig[] configs = {
+                SerializerConfig.builder().build(),
+                SerializerConfig.builder().compact(true).classTable(true).parallelChunkSize(16).build(),
+                SerializerConfig.builder().indexed(true).compressed(true).build()
+        };
+        for (SerializerConfig config : configs) {
+            SerializationMetrics metrics = new SerializationMetrics();
+            ObjectSerializer serializer = new ObjectSerializerImpl(config.toBuilder().listener(metrics).build());
+            List<Student> students = students(100);
+
+            byte[] bytes = serializer.serializeObj(students);
+            assertEquals(students, serializer.deserializeObj(bytes));
+            metrics.getClassStatistics().forEach(System.out::println);
+
+            ClassStatistics student = statisticsOf(metrics, Student.class);
+            assertEquals(100, student.getWritten());
+            assertEquals(100, student.getRead());
+            assertTrue(student.getBytesWritten() > 0);
+            assertEquals(student.getBytesWritten(), student.getBytesRead());
+            assertEquals(100, statisticsOf(metrics, University.class).getRead());
+            assertEquals(ArrayList.class.getName(), metrics.getClassStatistics().get(0).getType());
+
+            assertEquals(1, metrics.getPayloadsWritten());
+            assertEquals(1, metrics.getPayloadsRead());
+            assertEquals(4, metrics.getMaxWrittenDepth());
+            assertEquals(4, metrics.getMaxReadDepth());
+            assertEquals(1, LongStream.of(metrics.getWrittenPayloadHistogram()).sum());
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    public void countsBatchRecordsAsPayloads() {
+        SerializationMetrics metrics = new SerializationMetrics();
+        ObjectSerializer serializer = new ObjectSerializerImpl(SerializerConfig.builder().listener(metrics).build());
+
+        serializer.deserializeBatch(serializer.serializeBatch(students(10)));
+
+        assertEquals(10, metrics.getPayloadsWritten());
+        assertEquals(10, metrics.getPayloadsRead());
+        assertEquals(3, metrics.getMaxReadDepth());
+
+        metrics.reset();
+        assertEquals(0, metrics.getPayloadsWritten());
+        assertTrue(metrics.getClassStatistics().isEmpty());
+    }
+
+    @Test
+    @SneakyThrows
+    public void registerMBean() {
+        SerializationMetrics metrics = new SerializationMetrics();
+        ObjectSerializer serializer = new ObjectSerializerImpl(SerializerConfig.builder().listener(metrics).build());
+        serializer.serializeObj(students(3));
+
+        ObjectName name = metrics.register("test");
+        try {
+            assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "PayloadsWritten"));
+            assertEquals(4, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "MaxWrittenDepth"));
+        } finally {
+            metrics.unregister(name);
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+}
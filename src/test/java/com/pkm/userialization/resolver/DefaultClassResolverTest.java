@@ -0,0 +1,63 @@
+package com.pkm.userialization.resolver;
+
+import com.pkm.userialization.serializer.ObjectSerializer;
+import com.pkm.userialization.serializer.ObjectSerializerImpl;
+import com.pkm.userialization.serializer.SerializerConfig;
+import com.pkm.userialization.testclasses.Student;
+import com.pkm.userialization.testclasses.University;
+import lombok.SneakyThrows;
+import org.junit.Test;
+
+import java.io.InvalidClassException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class DefaultClassResolverTest {
+
+    @Test
+    @SneakyThrows
+    public void resolveOncePerName() {
+        AtomicInteger loads = new AtomicInteger();
+        ClassLoader loader = new ClassLoader(getClass().getClassLoader()) {
+            @Override
+            protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+                loads.incrementAndGet();
+                return super.loadClass(name, resolve);
+            }
+        };
+        DefaultClassResolver resolver = new DefaultClassResolver(loader);
+
+        assertSame(int.class, resolver.resolve("int"));
+        assertSame(Student.class, resolver.resolve(Student.class.getName()));
+        assertSame(Student.class, resolver.resolve(Student.class.getName()));
+        assertSame(String[].class, resolver.resolve(String[].class.getName()));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @SneakyThrows
+    public void rejectClassNotAllowed() {
+        SerializerConfig config = SerializerConfig.builder()
+                .classResolver(new DefaultClassResolver(getClass().getClassLoader(),
+                        name -> name.startsWith("java.") || name.equals(University.class.getName())))
+                .build();
+        ObjectSerializer serializer = new ObjectSerializerImpl(config);
+
+        List<Object> universities = new ArrayList<>();
+        universities.add(new University("DNU", 1));
+        assertEquals(universities, serializer.deserializeObj(serializer.serializeObj(universities)));
+
+        universities.add(new Student("FPM", new University("DNU", 2)));
+        byte[] bytes = serializer.serializeObj(universities);
+        try {
+            serializer.deserializeObj(bytes);
+            fail();
+        } catch (InvalidClassException e) {
+            System.out.println(e.getMessage());
+            assertEquals(Student.class.getName(), e.classname);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.pkm.userialization.serializer;
+
+import com.pkm.userialization.testclasses.*;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class ClassDescriptorTest {
+
+    @Test
+    public void descriptorIsCached() {
+        assertSame(ClassDescriptor.of(Student.class), ClassDescriptor.of(Student.class));
+    }
+
+    @Test
+    public void kinds() {
+        assertEquals(ClassDescriptor.Kind.PRIMITIVE, ClassDescriptor.of(int.class).getKind());
+        assertEquals(ClassDescriptor.Kind.WRAPPER, ClassDescriptor.of(Integer.class).getKind());
+        assertEquals(ClassDescriptor.Kind.STRING, ClassDescriptor.of(String.class).getKind());
+        assertEquals(ClassDescriptor.Kind.ARRAY, ClassDescriptor.of(int[].class).getKind());
+        assertEquals(ClassDescriptor.Kind.ENUM, ClassDescriptor.of(Gender.class).getKind());
+        assertEquals(ClassDescriptor.Kind.MAP, ClassDescriptor.of(HashMap.class).getKind());
+        assertEquals(ClassDescriptor.Kind.COLLECTION, ClassDescriptor.of(ArrayList.class).getKind());
+        assertEquals(ClassDescriptor.Kind.POJO, ClassDescriptor.of(Student.class).getKind());
+
+        assertEquals(int.class, ClassDescriptor.of(Integer.class).getPrimitiveType());
+    }
+
+    @Test
+    public void fields() {
+        Field[] fields = ClassDescriptor.of(Student.class).getFields();
+        List<String> fieldsNames = Arrays.stream(fields)
+                .map(Field::getName)
+                .collect(Collectors.toList());
+
+        assertEquals(Arrays.asList("facultyName", "university", "name", "surname", "age", "gender"), fieldsNames);
+        assertTrue(Arrays.stream(fields).allMatch(Field::isAccessible));
+
+        List<String> enumFieldsNames = Arrays.stream(ClassDescriptor.of(TestEnum.class).getFields())
+                .map(Field::getName)
+                .collect(Collectors.toList());
+        assertEquals(Arrays.asList("title", "value", "university"), enumFieldsNames);
+    }
+}
@@ -0,0 +1,107 @@
+package com.pkm.userialization.serializer;
+
+import com.pkm.userialization.testclasses.*;
+import lombok.SneakyThrows;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class DeltaCodecTest {
+
+    private static Map<String, Object> snapshot() {
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Student student = new Student("F" + i % 10, new University("U" + i % 7, i % 5));
+            student.setName("Name" + i);
+            student.setAge(18 + i % 6);
+            student.setGender(i % 2 == 0 ? Gender.MALE : Gender.FEMALE);
+            students.add(student);
+        }
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("students", students);
+        snapshot.put("tags", new HashSet<>(Arrays.asList("a", "b", "c")));
+        snapshot.put("houses", new House[]{new House("Main st", 5, true), new House("Side st", 2, false)});
+        snapshot.put("title", "Snapshot");
+        snapshot.put("version", 1);
+        return snapshot;
+    }
+
+    @Test
+    @SneakyThrows
+    public void applyDeltaToCopyOfBase() {
+        SerializerConfig[] configs = {
+                SerializerConfig.DEFAULT,
+                SerializerConfig.builder().compact(true).classTable(true).stringTableSize(64).build(),
+                SerializerConfig.builder().referenceTracking(true).compressed(true).build()
+        };
+        for (SerializerConfig config : configs) {
+            ObjectSerializer serializer = new ObjectSerializerImpl(config);
+            Map<String, Object> base = snapshot();
+            Map<String, Object> current = snapshot();
+            List<Student> students = (List<Student>) current.get("students");
+            students.get(10).setAge(99);
+            students.get(500).getUniversity().setName("Renamed");
+            students.add(new Student("New", new University("U", 1)));
+            ((Set<String>) current.get("tags")).remove("a");
+            ((Set<String>) current.get("tags")).add("d");
+            ((House[]) current.get("houses"))[1].setNumberOfFloors(3);
+            current.put("version", 2);
+            current.remove("title");
+
+            byte[] delta = serializer.serializeDelta(base, current);
+            byte[] full = serializer.serializeObj(current);
+            System.out.println("Delta size: " + delta.length + ", full size: " + full.length);
+
+            Map<String, Object> copy = (Map<String, Object>) serializer.deserializeObj(serializer.serializeObj(base));
+            Map<String, Object> patched = (Map<String, Object>) serializer.applyDelta(copy, delta);
+
+            assertSame(copy, patched);
+            assertArrayEquals((House[]) current.remove("houses"), (House[]) patched.remove("houses"));
+            assertEquals(current, patched);
+            assertTrue(delta.length * 20 < full.length);
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    public void unchangedAndReplacedRoots() {
+        ObjectSerializer serializer = new ObjectSerializerImpl();
+
+        byte[] unchanged = serializer.serializeDelta(snapshot().get("students"), snapshot().get("students"));
+        assertEquals(1, unchanged.length);
+
+        List<Student> shrunk = (List<Student>) snapshot().get("students");
+        shrunk.subList(3, shrunk.size()).clear();
+        List<Student> base = (List<Student>) snapshot().get("students");
+        assertEquals(shrunk, serializer.applyDelta(base, serializer.serializeDelta(snapshot().get("students"), shrunk)));
+
+        University university = new University("DNU", 4);
+        assertEquals(university, serializer.applyDelta("text", serializer.serializeDelta("text", university)));
+        assertNull(serializer.applyDelta(university, serializer.serializeDelta(university, null)));
+        assertEquals(Collections.singletonList(1), serializer.applyDelta(Collections.singletonList(0),
+                serializer.serializeDelta(Collections.singletonList(0), Collections.singletonList(1))));
+    }
+
+    @Test
+    @SneakyThrows
+    public void sharedBaseInstanceWithDifferentCounterparts() {
+        ObjectSerializer serializer = new ObjectSerializerImpl(SerializerConfig.builder().referenceTracking(true).build());
+        University shared = new University("U", 1);
+        List<University> base = new ArrayList<>(Arrays.asList(shared, shared));
+        List<University> current = new ArrayList<>(Arrays.asList(new University("A", 1), new University("B", 1)));
+
+        byte[] delta = serializer.serializeDelta(base, current);
+        List<University> copy = (List<University>) serializer.deserializeObj(serializer.serializeObj(base));
+        assertSame(copy.get(0), copy.get(1));
+
+        assertEquals(current, serializer.applyDelta(copy, delta));
+
+        List<University> sharedCurrent = new ArrayList<>(Arrays.asList(current.get(0), current.get(0)));
+        List<University> distinctBase = new ArrayList<>(Arrays.asList(new University("U", 1), new University("V", 1)));
+        List<University> distinctCopy = (List<University>) serializer.deserializeObj(serializer.serializeObj(distinctBase));
+        assertEquals(sharedCurrent, serializer.applyDelta(distinctCopy,
+                serializer.serializeDelta(distinctBase, sharedCurrent)));
+    }
+}
@@ -0,0 +1,47 @@
+package com.pkm.userialization.serializer;
+
+import com.pkm.userialization.testclasses.House;
+import com.pkm.userialization.testclasses.Passport;
+import lombok.SneakyThrows;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FieldAccessorTest {
+
+    @Test
+    @SneakyThrows
+    public void primitiveAccessWithoutBoxing() {
+        House house = new House("Lenina 1", 5, true);
+        FieldAccessor floors = FieldAccessor.of(House.class.getDeclaredField("numberOfFloors"));
+        FieldAccessor stone = FieldAccessor.of(House.class.getDeclaredField("stone"));
+
+        assertEquals(5, floors.getInt(house));
+        floors.setInt(house, 9);
+        stone.setBoolean(house, false);
+
+        assertEquals(9, house.getNumberOfFloors());
+        assertFalse(house.isStone());
+        assertEquals(9, floors.get(house));
+    }
+
+    @Test
+    @SneakyThrows
+    public void setFinalFields() {
+        Passport passport = new Passport("123456", 4510, 1L, 'A');
+        FieldAccessor number = FieldAccessor.of(Passport.class.getDeclaredField("number"));
+        FieldAccessor series = FieldAccessor.of(Passport.class.getDeclaredField("series"));
+
+        number.set(passport, "654321");
+        series.setInt(passport, 4000);
+
+        assertEquals("654321", passport.getNumber());
+        assertEquals(4000, passport.getSeries());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    @SneakyThrows
+    public void wrongPrimitiveType() {
+        FieldAccessor.of(House.class.getDeclaredField("numberOfFloors")).getLong(new House("", 1, false));
+    }
+}
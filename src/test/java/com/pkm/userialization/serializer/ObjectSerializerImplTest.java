@@ -1,10 +1,19 @@
 package com.pkm.userialization.serializer;
 
+import com.pkm.userialization.io.BufferPool;
 import com.pkm.userialization.testclasses.*;
 import lombok.SneakyThrows;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.NotSerializableException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 import static org.junit.Assert.*;
@@ -310,4 +319,776 @@ public class ObjectSerializerImplTest {
 
         assertEquals(human, deserializeHuman);
     }
-}
\ No newline at end of file
+
+    @Test
+    @SneakyThrows
+    public void serializeEnumWithConstantBodies() {
+        for (boolean ordinals : new boolean[]{false, true}) {
+            ObjectSerializer serializer = new ObjectSerializerImpl(
+                    SerializerConfig.builder().enumOrdinals(ordinals).classTable(ordinals).build());
+            Calculation calculation = new Calculation(2, 3, Operation.MINUS);
+
+            assertSame(Operation.PLUS, serializer.deserializeObj(serializer.serializeObj(Operation.PLUS)));
+
+            Calculation deserializeCalculation = (Calculation) serializer.deserializeObj(serializer.serializeObj(calculation));
+            assertEquals(calculation, deserializeCalculation);
+            assertSame(Operation.MINUS, deserializeCalculation.getOperation());
+
+            Operation[] operations = {Operation.MINUS, Operation.PLUS, null};
+            Operation[] deserializeOperations = (Operation[]) serializer.deserializeObj(serializer.serializeObj(operations));
+            assertSame(Operation.MINUS, deserializeOperations[0]);
+            assertSame(Operation.PLUS, deserializeOperations[1]);
+            assertNull(deserializeOperations[2]);
+
+            List<Operation> list = new ArrayList<>(Arrays.asList(Operation.PLUS, Operation.PLUS));
+            List<?> deserializeList = (List<?>) serializer.deserializeObj(serializer.serializeObj(list));
+            assertSame(Operation.PLUS, deserializeList.get(0));
+            assertSame(Operation.PLUS, deserializeList.get(1));
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    public void serializeWithEnumOrdinals() {
+        ObjectSerializer ordinalSerializer = new ObjectSerializerImpl(
+                SerializerConfig.builder().enumOrdinals(true).build());
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            values.add(new Human("John", "Ivanov", i, i % 2 == 0 ? Gender.MALE : Gender.FEMALE));
+        }
+        values.add(TestEnum.THREE);
+        String title = TestEnum.THREE.getTitle();
+
+        byte[] bytes = ordinalSerializer.serializeObj(values);
+        System.out.println("Size in bytes: " + bytes.length + ", by name: " + objectSerializer.serializeObj(values).length);
+
+        List<Object> deserializeValues = (List<Object>) ordinalSerializer.deserializeObj(bytes);
+
+        assertEquals(values, deserializeValues);
+        assertSame(TestEnum.THREE, deserializeValues.get(10));
+        assertEquals(title, TestEnum.THREE.getTitle());
+        assertTrue(bytes.length < objectSerializer.serializeObj(values).length);
+    }
+
+    @Test
+    @SneakyThrows
+    public void serializedSizeMatchesBytes() {
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Student student = new Student("FPM", new University("Университет", i));
+            student.setName("Name" + i);
+            student.setGender(i % 2 == 0 ? Gender.MALE : Gender.FEMALE);
+            students.add(student);
+        }
+        SerializerConfig[] configs = {
+                SerializerConfig.DEFAULT,
+                SerializerConfig.builder().compact(true).classTable(true).referenceTracking(true).stringTableSize(64).build(),
+                SerializerConfig.builder().indexed(true).build(),
+                SerializerConfig.builder().parallelChunkSize(16).build(),
+                SerializerConfig.builder().compressed(true).build()
+        };
+        for (SerializerConfig config : configs) {
+            ObjectSerializer serializer = new ObjectSerializerImpl(config);
+            long size = serializer.serializedSize(students);
+            byte[] bytes = serializer.serializeObj(students);
+            System.out.println("Size in bytes: " + size);
+
+            assertEquals(bytes.length, size);
+            assertEquals(size, new PooledObjectSerializer(config).serializedSize(students));
+            assertEquals(students, serializer.deserializeObj(bytes));
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    public void serializeWithClassTable() {
+        ObjectSerializer classTableSerializer = new ObjectSerializerImpl(
+                SerializerConfig.builder().classTable(true).build());
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Student student = new Student("FPM", new University("DNU", i));
+            student.setAge(i);
+            student.setGender(i % 2 == 0 ? Gender.MALE : Gender.FEMALE);
+            students.add(student);
+        }
+
+        byte[] plainBytes = objectSerializer.serializeObj(students);
+        byte[] bytes = classTableSerializer.serializeObj(students);
+        System.out.println("Size in bytes: " + plainBytes.length + " -> " + bytes.length);
+
+        List<Student> deserializeStudents = (List<Student>) classTableSerializer.deserializeObj(bytes);
+
+        assertEquals(students, deserializeStudents);
+        assertTrue(bytes.length * 2 < plainBytes.length);
+    }
+
+    @Test
+    @SneakyThrows
+    public void serializeArraysOfAllPrimitives() {
+        byte[] bytesArr = new byte[1 << 20];
+        new Random(42).nextBytes(bytesArr);
+        Object[] arrays = {
+                bytesArr,
+                new short[]{1, -2, Short.MAX_VALUE},
+                new char[]{'a', 'Ы', Character.MAX_VALUE},
+                new long[]{1L, Long.MIN_VALUE, 42412553421341232L},
+                new float[]{3.21f, Float.NaN},
+                new double[]{4.3221, Double.NEGATIVE_INFINITY},
+                new boolean[]{true, false, true, true, false, false, false, true, true},
+                new int[0]
+        };
+
+        for (Object arr : arrays) {
+            byte[] bytes = objectSerializer.serializeObj(arr);
+            Object deserializeArr = objectSerializer.deserializeObj(bytes);
+
+            assertEquals(arr.getClass(), deserializeArr.getClass());
+            assertTrue(Objects.deepEquals(arr, deserializeArr));
+        }
+
+        byte[] bytes = objectSerializer.serializeObj(bytesArr);
+        System.out.println("Size in bytes: " + bytes.length);
+        assertTrue(bytes.length < bytesArr.length + 64);
+    }
+
+    @Test
+    @SneakyThrows
+    public void serializeSharedAndCyclicReferences() {
+        ObjectSerializer trackingSerializer = new ObjectSerializerImpl(
+                SerializerConfig.builder().referenceTracking(true).build());
+        University university = new University("DNU", 4);
+        TreeNode root = new TreeNode("root");
+        root.addChild(new TreeNode("left")).addChild(new TreeNode("leaf"));
+        root.addChild(new TreeNode("right"));
+        List<Object> graph = new ArrayList<>();
+        graph.add(root);
+        graph.add(university);
+        graph.add(university);
+        System.out.println("Before: " + graph);
+
+        byte[] bytes = trackingSerializer.serializeObj(graph);
+        System.out.println("Size in bytes: " + bytes.length);
+
+        List<Object> deserializeGraph = (List<Object>) trackingSerializer.deserializeObj(bytes);
+        System.out.println("After: " + deserializeGraph);
+
+        assertEquals(graph, deserializeGraph);
+        assertSame(deserializeGraph.get(1), deserializeGraph.get(2));
+        TreeNode deserializeRoot = (TreeNode) deserializeGraph.get(0);
+        assertNull(deserializeRoot.getParent());
+        for (TreeNode child : deserializeRoot.getChildren()) {
+            assertSame(deserializeRoot, child.getParent());
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    public void serializeReferencesWithClassTable() {
+        ObjectSerializer serializer = new ObjectSerializerImpl(
+                SerializerConfig.builder().referenceTracking(true).classTable(true).build());
+        TreeNode root = new TreeNode("root");
+        root.addChild(new TreeNode("child"));
+        Object[] graph = {root, root.getChildren(), root};
+
+        Object[] deserializeGraph = (Object[]) serializer.deserializeObj(serializer.serializeObj(graph));
+
+        assertEquals(root, deserializeGraph[0]);
+        assertSame(deserializeGraph[0], deserializeGraph[2]);
+        assertSame(((TreeNode) deserializeGraph[0]).getChildren(), deserializeGraph[1]);
+    }
+
+    @Test
+    @SneakyThrows
+    public void serializeToStreamAndChannel() {
+        Student student = new Student("FPM", new University("DNU", 4));
+        student.setName("John");
+        student.setGender(Gender.MALE);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        objectSerializer.serializeObj(student, baos);
+        byte[] expected = objectSerializer.serializeObj(student);
+        byte[] framed = baos.toByteArray();
+        assertArrayEquals(expected, Arrays.copyOfRange(framed, framed.length - 1 - expected.length, framed.length - 1));
+        assertEquals(0, framed[framed.length - 1]);
+        assertEquals(student, objectSerializer.deserializeObj(new ByteArrayInputStream(baos.toByteArray())));
+
+        baos.reset();
+        objectSerializer.serializeObj(student, Channels.newChannel(baos));
+        Object deserializeStudent = objectSerializer.deserializeObj(
+                Channels.newChannel(new ByteArrayInputStream(baos.toByteArray())));
+        assertEquals(student, deserializeStudent);
+    }
+
+    @Test
+    @SneakyThrows
+    public void readConsecutiveObjectsFromStream() {
+        Student student = new Student("FPM", new University("DNU", 4));
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        objectSerializer.serializeObj("first", baos);
+        objectSerializer.serializeObj(student, baos);
+
+        ByteArrayInputStream stream = new ByteArrayInputStream(baos.toByteArray());
+        assertEquals("first", objectSerializer.deserializeObj(stream));
+        assertEquals(student, objectSerializer.deserializeObj(stream));
+        assertEquals(0, stream.available());
+
+        ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(baos.toByteArray()));
+        assertEquals("first", objectSerializer.deserializeObj(channel));
+        assertEquals(student, objectSerializer.deserializeObj(channel));
+    }
+
+    @Test
+    @SneakyThrows
+    public void readConsecutiveObjectsFromPartialChannel() {
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            students.add(new Student("FPM" + i, new University("DNU", i % 5)));
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        objectSerializer.serializeObj(students, baos);
+        objectSerializer.serializeObj("tail", baos);
+        objectSerializer.serializeObj(students.get(7), baos);
+        System.out.println("Size in bytes: " + baos.size());
+
+        ByteArrayInputStream source = new ByteArrayInputStream(baos.toByteArray());
+        int[] reads = new int[1];
+        ReadableByteChannel channel = new ReadableByteChannel() {
+            @Override
+            public int read(ByteBuffer dst) {
+                reads[0]++;
+                int n = source.read(dst.array(), dst.arrayOffset() + dst.position(), Math.min(1000, dst.remaining()));
+                if (n > 0) {
+                    dst.position(dst.position() + n);
+                }
+                return n;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        assertEquals(students, objectSerializer.deserializeObj(channel));
+        assertEquals("tail", objectSerializer.deserializeObj(channel));
+        assertEquals(students.get(7), objectSerializer.deserializeObj(channel));
+        assertEquals(0, source.available());
+        System.out.println("Channel reads: " + reads[0]);
+        assertTrue(reads[0] < baos.size() / 500);
+    }
+
+    @Test
+    @SneakyThrows
+    public void serializeAlternatingSizes() {
+        ObjectSerializerImpl serializer = new ObjectSerializerImpl();
+        List<University> small = new ArrayList<>(Collections.singletonList(new University("DNU", 1)));
+        List<University> large = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            large.add(new University("DNU" + i, i % 5));
+        }
+
+        int largeSize = 0;
+        for (int i = 0; i < 10; i++) {
+            List<University> value = i % 2 == 0 ? large : small;
+            byte[] bytes = serializer.serializeObj(value);
+            assertEquals(value, serializer.deserializeObj(bytes));
+            if (value == large) {
+                largeSize = bytes.length;
+            }
+            assertTrue(serializer.sizeEstimate(ArrayList.class) >= largeSize);
+        }
+        System.out.println("Size in bytes: " + largeSize + ", estimate: " + serializer.sizeEstimate(ArrayList.class));
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals(small, serializer.deserializeObj(serializer.serializeObj(small)));
+        }
+        assertTrue(serializer.sizeEstimate(ArrayList.class) < largeSize);
+    }
+
+    @Test
+    @SneakyThrows
+    public void serializeToByteBuffer() {
+        Human human = new Human("John", "Ivanov", 27, Gender.MALE);
+        byte[] expected = objectSerializer.serializeObj(human);
+
+        for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.allocate(1024), ByteBuffer.allocateDirect(1024)}) {
+            buffer.put((byte) 42);
+            objectSerializer.serializeObj(human, buffer);
+            assertEquals(1 + expected.length, buffer.position());
+
+            buffer.flip();
+            buffer.get();
+            assertEquals(human, objectSerializer.deserializeObj(buffer));
+            assertFalse(buffer.hasRemaining());
+        }
+    }
+
+    @Test(expected = BufferOverflowException.class)
+    @SneakyThrows
+    public void serializeToSmallByteBuffer() {
+        objectSerializer.serializeObj(new Human("John", "Ivanov", 27, Gender.MALE), ByteBuffer.allocate(8));
+    }
+
+    @Test
+    @SneakyThrows
+    public void serializeToPooledBuffer() {
+        BufferPool pool = new BufferPool(true, 4);
+        int[] arr = new int[10_000];
+        Arrays.fill(arr, 7);
+
+        ByteBuffer buffer = objectSerializer.serializeObj(arr, pool);
+        assertTrue(buffer.isDirect());
+        assertEquals(objectSerializer.serializeObj(arr).length, buffer.remaining());
+        assertArrayEquals(arr, (int[]) objectSerializer.deserializeObj(buffer));
+        pool.release(buffer);
+
+        ByteBuffer reused = objectSerializer.serializeObj(arr, pool);
+        assertSame(buffer, reused);
+    }
+
+    @Test
+    @SneakyThrows
+    public void serializeObjectWithFinalFields() {
+        Passport passport = new Passport("123456", 4510, 1571400000000L, 'B');
+        System.out.println("Before: " + passport);
+
+        byte[] bytes = objectSerializer.serializeObj(passport);
+        System.out.println("Size in bytes: " + bytes.length);
+
+        Passport deserializePassport = (Passport) objectSerializer.deserializeObj(bytes);
+        System.out.println("After: " + deserializePassport);
+
+        assertEquals(passport, deserializePassport);
+    }
+
+    @Test
+    @SneakyThrows
+    public void serializeCompact() {
+        ObjectSerializer compactSerializer = new ObjectSerializerImpl(
+                SerializerConfig.builder().compact(true).classTable(true).build());
+        StringBuilder longString = new StringBuilder();
+        for (int i = 0; i < 70_000; i++) {
+            longString.append(i % 2 == 0 ? 'ё' : 'z');
+        }
+        Map<Object, Object> map = new HashMap<>();
+        map.put(-1, Long.MIN_VALUE);
+        map.put(Integer.MAX_VALUE, 42412553421341232L);
+        map.put("latin", "Ärger café");
+        map.put("utf", "Строка \uD83D\uDE00");
+        map.put("long", longString.toString());
+        map.put("student", new Student("FPM", new University("DNU", 4)));
+        System.out.println("Before: " + map.keySet());
+
+        byte[] bytes = compactSerializer.serializeObj(map);
+        System.out.println("Size in bytes: " + bytes.length);
+
+        Map<Object, Object> deserializeMap = (Map<Object, Object>) compactSerializer.deserializeObj(bytes);
+
+        assertEquals(map, deserializeMap);
+    }
+
+    @Test
+    @SneakyThrows
+    public void compactIsSmaller() {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            ids.add(i);
+        }
+        SerializerConfig config = SerializerConfig.builder().classTable(true).build();
+        byte[] plainBytes = new ObjectSerializerImpl(config).serializeObj(ids);
+        byte[] compactBytes = new ObjectSerializerImpl(config.toBuilder().compact(true).build()).serializeObj(ids);
+        System.out.println("Size in bytes: " + plainBytes.length + " -> " + compactBytes.length);
+
+        assertTrue(compactBytes.length * 3 < plainBytes.length * 2);
+    }
+
+    @Test
+    @SneakyThrows
+    public void serializeFieldsWithExactTypes() {
+        Room room = new Room("101", 3, new int[]{1, 2, 3}, Gender.FEMALE, null);
+        Room emptyRoom = new Room(null, null, null, null, null);
+        room.setNeighbour(emptyRoom);
+        System.out.println("Before: " + room);
+
+        byte[] bytes = objectSerializer.serializeObj(room);
+        System.out.println("Size in bytes: " + bytes.length);
+
+        Room deserializeRoom = (Room) objectSerializer.deserializeObj(bytes);
+        System.out.println("After: " + deserializeRoom);
+
+        assertEquals(room, deserializeRoom);
+        assertEquals(emptyRoom, deserializeRoom.getNeighbour());
+        assertNull(deserializeRoom.getNeighbour().getNeighbour());
+    }
+
+    @Test
+    @SneakyThrows
+    public void serializeCyclicFieldWithExactType() {
+        ObjectSerializer trackingSerializer = new ObjectSerializerImpl(
+                SerializerConfig.builder().referenceTracking(true).build());
+        Room room = new Room("101", 3, null, Gender.MALE, null);
+        room.setNeighbour(room);
+
+        Room deserializeRoom = (Room) trackingSerializer.deserializeObj(trackingSerializer.serializeObj(room));
+
+        assertEquals(room, deserializeRoom);
+        assertSame(deserializeRoom, deserializeRoom.getNeighbour());
+    }
+
+    @Test
+    @SneakyThrows
+    public void exactTypeFieldsHaveNoClassHeader() {
+        byte[] bytes = objectSerializer.serializeObj(new Human("John", "Ivanov", 27, Gender.MALE));
+        String payload = new String(bytes, StandardCharsets.ISO_8859_1);
+
+        assertTrue(payload.contains(Human.class.getName()));
+        assertFalse(payload.contains(String.class.getName()));
+        assertFalse(payload.contains(Integer.class.getName()));
+        assertFalse(payload.contains(Gender.class.getName()));
+    }
+
+    @Test
+    @SneakyThrows
+    public void serializeObjectWithCheckingConstructor() {
+        Certificate certificate = new Certificate("IELTS", 8);
+        int createdCount = Certificate.createdCount;
+
+        Certificate deserializeCertificate = (Certificate) objectSerializer.deserializeObj(
+                objectSerializer.serializeObj(certificate));
+
+        assertEquals(certificate, deserializeCertificate);
+        assertEquals(createdCount, Certificate.createdCount);
+    }
+
+    @Test
+    @SneakyThrows
+    public void serializeWithCustomInstantiatorStrategy() {
+        List<Class<?>> instantiated = new ArrayList<>();
+        ObjectSerializer serializer = new ObjectSerializerImpl(SerializerConfig.builder()
+                .instantiatorStrategy(clazz -> {
+                    instantiated.add(clazz);
+                    return () -> clazz.getConstructor().newInstance();
+                })
+                .build());
+        List<University> universities = new ArrayList<>();
+        universities.add(new University("DNU", 2));
+        universities.add(new University("DPI", 1));
+
+        Object deserializeUniversities = serializer.deserializeObj(serializer.serializeObj(universities));
+
+        assertEquals(universities, deserializeUniversities);
+        assertEquals(Arrays.asList(ArrayList.class, University.class), instantiated);
+    }
+
+    @Test
+    @SneakyThrows
+    public void serializeInParallelChunks() {
+        ObjectSerializer parallelSerializer = new ObjectSerializerImpl(SerializerConfig.builder()
+                .classTable(true)
+                .compact(true)
+                .parallelChunkSize(100)
+                .build());
+        List<Object> students = new ArrayList<>();
+        Map<String, University> universities = new HashMap<>();
+        University[] universitiesArray = new University[1000];
+        for (int i = 0; i < 1000; i++) {
+            University university = new University("U" + i, i % 6);
+            students.add(new Student("F" + i, university));
+            universities.put(university.getName(), university);
+            universitiesArray[i] = university;
+        }
+        List<Object> chunks = new ArrayList<>();
+        chunks.add(students);
+        chunks.add(universities);
+        chunks.add(universitiesArray);
+        List<Object> nested = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            nested.add(new ArrayList<>(students.subList(i, i + 150)));
+        }
+        chunks.add(nested);
+
+        byte[] bytes = parallelSerializer.serializeObj(chunks);
+        System.out.println("Size in bytes: " + bytes.length);
+
+        List<Object> deserializeChunks = (List<Object>) parallelSerializer.deserializeObj(bytes);
+
+        assertEquals(students, deserializeChunks.get(0));
+        assertEquals(universities, deserializeChunks.get(1));
+        assertArrayEquals(universitiesArray, (University[]) deserializeChunks.get(2));
+        assertEquals(nested, deserializeChunks.get(3));
+    }
+
+    @Test
+    @SneakyThrows
+    public void parallelChunksAreIgnoredWithReferenceTracking() {
+        SerializerConfig config = SerializerConfig.builder().referenceTracking(true).build();
+        List<University> universities = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            universities.add(new University("U" + i, i));
+        }
+        universities.add(universities.get(0));
+
+        byte[] bytes = new ObjectSerializerImpl(config.toBuilder().parallelChunkSize(10).build())
+                .serializeObj(universities);
+
+        assertArrayEquals(new ObjectSerializerImpl(config).serializeObj(universities), bytes);
+    }
+
+    @Test
+    @SneakyThrows
+    public void serializeBatch() {
+        List<Student> students = new ArrayList<>();
+        int separateSize = 0;
+        for (int i = 0; i < 50; i++) {
+            Student student = new Student("ФПМ", new University("ДНУ", i % 3));
+            students.add(student);
+            separateSize += objectSerializer.serializeObj(student).length;
+        }
+
+        byte[] bytes = objectSerializer.serializeBatch(students);
+        System.out.println("Size in bytes: " + bytes.length + ", separately: " + separateSize);
+
+        List<Object> deserializeStudents = objectSerializer.deserializeBatch(bytes);
+
+        assertEquals(students, deserializeStudents);
+        assertTrue(bytes.length * 2 < separateSize);
+        assertSame(((Student) deserializeStudents.get(0)).getFacultyName(),
+                ((Student) deserializeStudents.get(49)).getFacultyName());
+    }
+
+    @Test
+    @SneakyThrows
+    public void readBatchFromBuffer() {
+        ObjectSerializer trackingSerializer = new ObjectSerializerImpl(
+                SerializerConfig.builder().referenceTracking(true).compact(true).build());
+        University university = new University("DNU", 4);
+        List<Object> records = new ArrayList<>();
+        records.add(university);
+        records.add("record");
+        records.add(null);
+        records.add(new ArrayList<>(Arrays.asList(university, university)));
+        byte[] bytes = trackingSerializer.serializeBatch(records);
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 1);
+        buffer.put(bytes).put((byte) 42).flip();
+
+        BatchReader reader = trackingSerializer.readBatch(buffer);
+        List<Object> deserializeRecords = new ArrayList<>();
+        while (reader.hasNext()) {
+            deserializeRecords.add(reader.next());
+        }
+
+        assertEquals(4, reader.size());
+        assertEquals(records, deserializeRecords);
+        List<?> lastRecord = (List<?>) deserializeRecords.get(3);
+        assertSame(lastRecord.get(0), lastRecord.get(1));
+        assertNotSame(deserializeRecords.get(0), lastRecord.get(0));
+        assertEquals(42, buffer.get());
+    }
+
+    @Test
+    @SneakyThrows
+    public void readCompressedBatch() {
+        ObjectSerializer compressedSerializer = new ObjectSerializerImpl(
+                SerializerConfig.builder().compressed(true).compressionThreshold(0).build());
+        List<Object> records = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            records.add(new University("DNU", i % 5));
+        }
+        byte[] bytes = compressedSerializer.serializeBatch(records);
+        System.out.println("Size in bytes: " + bytes.length);
+
+        assertEquals(records, compressedSerializer.deserializeBatch(bytes));
+        try (BatchReader reader = compressedSerializer.readBatch(ByteBuffer.wrap(bytes))) {
+            assertEquals(records.size(), reader.size());
+            assertEquals(records.get(0), reader.next());
+            assertEquals(records.get(1), reader.next());
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    public void serializeCompressed() {
+        ObjectSerializer compressedSerializer = new ObjectSerializerImpl(
+                SerializerConfig.builder().compressed(true).build());
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            students.add(new Student("ФПМ", new University("ДНУ", i % 5)));
+        }
+
+        byte[] bytes = compressedSerializer.serializeObj(students);
+        byte[] plainBytes = objectSerializer.serializeObj(students);
+        System.out.println("Size in bytes: " + bytes.length + ", uncompressed: " + plainBytes.length);
+
+        assertEquals(students, compressedSerializer.deserializeObj(bytes));
+        assertTrue(bytes.length * 10 < plainBytes.length);
+        assertEquals("small", compressedSerializer.deserializeObj(compressedSerializer.serializeObj("small")));
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        compressedSerializer.serializeObj(students, baos);
+        compressedSerializer.serializeObj("tail", baos);
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 64);
+        compressedSerializer.serializeObj(students, buffer);
+        compressedSerializer.serializeObj("tail", buffer);
+        buffer.flip();
+        assertEquals(students, compressedSerializer.deserializeObj(buffer));
+        assertEquals("tail", compressedSerializer.deserializeObj(buffer));
+        assertFalse(buffer.hasRemaining());
+
+        ByteArrayInputStream stream = new ByteArrayInputStream(baos.toByteArray());
+        assertEquals(students, compressedSerializer.deserializeObj(stream));
+        assertEquals("tail", compressedSerializer.deserializeObj(stream));
+        assertEquals(0, stream.available());
+
+        ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(baos.toByteArray()));
+        assertEquals(students, compressedSerializer.deserializeObj(channel));
+        assertEquals("tail", compressedSerializer.deserializeObj(channel));
+    }
+
+    @Test
+    @SneakyThrows
+    public void serializeWithStringTable() {
+        for (boolean compact : new boolean[]{false, true}) {
+            ObjectSerializer tableSerializer = new ObjectSerializerImpl(
+                    SerializerConfig.builder().stringTableSize(16).compact(compact).build());
+            List<Student> students = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                Student student = new Student("ФПМ", new University("ДНУ", i % 3));
+                student.setGender(i % 2 == 0 ? Gender.MALE : Gender.FEMALE);
+                students.add(student);
+            }
+
+            byte[] bytes = tableSerializer.serializeObj(students);
+            byte[] plainBytes = new ObjectSerializerImpl(
+                    SerializerConfig.builder().compact(compact).build()).serializeObj(students);
+            System.out.println("Size in bytes: " + bytes.length + ", without table: " + plainBytes.length);
+
+            List<Student> deserializeStudents = (List<Student>) tableSerializer.deserializeObj(bytes);
+
+            assertEquals(students, deserializeStudents);
+            assertTrue(bytes.length < plainBytes.length);
+            assertSame(deserializeStudents.get(0).getUniversity().getName(),
+                    deserializeStudents.get(99).getUniversity().getName());
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    public void stringTableIsBounded() {
+        ObjectSerializer tableSerializer = new ObjectSerializerImpl(SerializerConfig.builder().stringTableSize(2).build());
+        List<String> strings = new ArrayList<>(Arrays.asList("a", "b", "c", "a", "c", "b", "c"));
+
+        List<String> deserializeStrings = (List<String>) tableSerializer.deserializeObj(
+                tableSerializer.serializeObj(strings));
+
+        assertEquals(strings, deserializeStrings);
+        assertSame(deserializeStrings.get(0), deserializeStrings.get(3));
+        assertNotSame(deserializeStrings.get(2), deserializeStrings.get(4));
+    }
+
+    @Test
+    @SneakyThrows
+    public void serializeJdkWrapperCollections() {
+        List<Object> values = new ArrayList<>();
+        values.add(Arrays.asList("a", "b", null));
+        values.add(Collections.unmodifiableList(new ArrayList<>(Arrays.asList(1, 2, 3))));
+        values.add(Collections.unmodifiableList(new LinkedList<>(Arrays.asList(1, 2))));
+        values.add(Collections.unmodifiableSet(new HashSet<>(Arrays.asList("x", "y"))));
+        values.add(Collections.unmodifiableSortedSet(new TreeSet<>(Arrays.asList(3, 1, 2))));
+        values.add(Collections.unmodifiableMap(Collections.singletonMap("k", new University("DNU", 4))));
+        values.add(Collections.synchronizedList(new ArrayList<>(Arrays.asList(1L, 2L))));
+        values.add(Collections.emptyList());
+        values.add(Collections.emptySet());
+        values.add(Collections.emptyMap());
+        values.add(Collections.singletonList("one"));
+        values.add(Collections.singleton("one"));
+        values.add(Collections.singletonMap("one", 1));
+
+        for (SerializerConfig config : new SerializerConfig[]{SerializerConfig.DEFAULT,
+                SerializerConfig.builder().referenceTracking(true).classTable(true).compact(true).build()}) {
+            ObjectSerializer serializer = new ObjectSerializerImpl(config);
+            byte[] bytes = serializer.serializeObj(values);
+            System.out.println("Size in bytes: " + bytes.length);
+
+            List<Object> deserializeValues = (List<Object>) serializer.deserializeObj(bytes);
+
+            assertEquals(values, deserializeValues);
+            for (int i = 0; i < values.size(); i++) {
+                assertEquals(values.get(i).getClass(), deserializeValues.get(i).getClass());
+            }
+            assertSame(Collections.emptyList(), deserializeValues.get(7));
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    public void sharedWrapperKeepsIdentity() {
+        ObjectSerializer trackingSerializer = new ObjectSerializerImpl(
+                SerializerConfig.builder().referenceTracking(true).build());
+        List<String> shared = Collections.unmodifiableList(new ArrayList<>(Arrays.asList("a", "b")));
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("first", shared);
+        map.put("second", shared);
+
+        Map<String, Object> deserializeMap = (Map<String, Object>) trackingSerializer.deserializeObj(
+                trackingSerializer.serializeObj(map));
+
+        assertEquals(map, deserializeMap);
+        assertSame(deserializeMap.get("first"), deserializeMap.get("second"));
+    }
+
+    @Test
+    @SneakyThrows
+    public void serializeEnumMapAndEnumSet() {
+        for (boolean compact : new boolean[]{false, true}) {
+            ObjectSerializer serializer = new ObjectSerializerImpl(
+                    SerializerConfig.builder().compact(compact).classTable(compact).referenceTracking(compact).build());
+            EnumMap<Gender, University> map = new EnumMap<>(Gender.class);
+            map.put(Gender.FEMALE, new University("DNU", 4));
+            EnumSet<Operation> operations = EnumSet.of(Operation.MINUS);
+            EnumSet<Gender> noGenders = EnumSet.noneOf(Gender.class);
+            List<Object> values = new ArrayList<>(Arrays.asList(map, operations, noGenders));
+
+            List<Object> deserializeValues = (List<Object>) serializer.deserializeObj(serializer.serializeObj(values));
+
+            assertEquals(values, deserializeValues);
+            assertEquals(EnumMap.class, deserializeValues.get(0).getClass());
+            ((EnumSet<Operation>) deserializeValues.get(1)).add(Operation.PLUS);
+            ((EnumSet<Gender>) deserializeValues.get(2)).add(Gender.MALE);
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    public void serializeEmptyEnumMap() {
+        EnumMap<Gender, String> map = new EnumMap<>(Gender.class);
+        byte[] bytes;
+        try {
+            bytes = objectSerializer.serializeObj(map);
+        } catch (NotSerializableException e) {
+            System.out.println("Empty EnumMap is not supported: " + e.getMessage());
+            return;
+        }
+        EnumMap<Gender, String> deserializeMap = (EnumMap<Gender, String>) objectSerializer.deserializeObj(bytes);
+        assertTrue(deserializeMap.isEmpty());
+        deserializeMap.put(Gender.MALE, "John");
+    }
+
+    @Test
+    @SneakyThrows
+    public void viewEnumMap() {
+        ObjectSerializerImpl serializer = new ObjectSerializerImpl(SerializerConfig.builder().indexed(true).build());
+        EnumMap<Gender, String> map = new EnumMap<>(Gender.class);
+        map.put(Gender.MALE, "John");
+        map.put(Gender.FEMALE, "Jane");
+
+        ObjectView view = serializer.view(serializer.serializeObj(map));
+
+        assertEquals(2, view.size());
+        assertEquals("Jane", view.value(Gender.FEMALE).get());
+        assertEquals(map, view.get());
+    }
+}
@@ -0,0 +1,76 @@
+package com.pkm.userialization.serializer;
+
+import com.pkm.userialization.testclasses.*;
+import lombok.SneakyThrows;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ObjectViewTest {
+
+    private static Map<String, Object> payload() {
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Student student = new Student("F" + i, new University("U" + i, i % 5));
+            student.setName("Name" + i);
+            student.setAge(18 + i);
+            student.setGender(i % 2 == 0 ? Gender.MALE : Gender.FEMALE);
+            students.add(student);
+        }
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("students", students);
+        payload.put("rooms", new Room[]{new Room("101", 2, new int[]{1, 2}, Gender.MALE, null), null});
+        payload.put("title", "Snapshot");
+        return payload;
+    }
+
+    @Test
+    @SneakyThrows
+    public void readPartsOfIndexedObject() {
+        for (boolean compact : new boolean[]{false, true}) {
+            ObjectSerializerImpl serializer = new ObjectSerializerImpl(
+                    SerializerConfig.builder().indexed(true).compact(compact).build());
+            Map<String, Object> payload = payload();
+
+            byte[] bytes = serializer.serializeObj(payload);
+            System.out.println("Size in bytes: " + bytes.length);
+
+            Map<String, Object> deserializePayload = (Map<String, Object>) serializer.deserializeObj(bytes);
+            assertArrayEquals((Room[]) payload.remove("rooms"), (Room[]) deserializePayload.remove("rooms"));
+            assertEquals(payload, deserializePayload);
+
+            ObjectView view = serializer.view(bytes);
+            assertEquals(HashMap.class, view.getType());
+            assertEquals(3, view.size());
+            assertEquals("Snapshot", view.get("[title]"));
+            assertEquals(20, view.path("[students]").size());
+            assertEquals("U7", view.get("[students][7].university.name"));
+            assertEquals(25, view.get("[students][7].age"));
+            assertEquals(Gender.FEMALE, view.get("[students][7].gender"));
+            assertEquals(((List<?>) payload.get("students")).get(3), view.get("[students][3]"));
+            assertArrayEquals(new int[]{1, 2}, (int[]) view.get("[rooms][0].beds"));
+            assertTrue(view.path("[rooms][1].number").isNull());
+            assertNull(view.get("[missing]"));
+        }
+    }
+
+    @Test(expected = NoSuchFieldException.class)
+    @SneakyThrows
+    public void unknownField() {
+        ObjectSerializerImpl serializer = new ObjectSerializerImpl(SerializerConfig.builder().indexed(true).build());
+        serializer.view(serializer.serializeObj(new University("DNU", 4))).field("rector");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    @SneakyThrows
+    public void viewRequiresIndependentParts() {
+        ObjectSerializerImpl serializer = new ObjectSerializerImpl(
+                SerializerConfig.builder().indexed(true).classTable(true).build());
+        byte[] bytes = serializer.serializeObj(new University("DNU", 4));
+
+        assertEquals(new University("DNU", 4), serializer.deserializeObj(bytes));
+        serializer.view(bytes);
+    }
+}
@@ -0,0 +1,116 @@
+package com.pkm.userialization.serializer;
+
+import com.pkm.userialization.testclasses.*;
+import lombok.SneakyThrows;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class PooledObjectSerializerTest {
+
+    @Test
+    @SneakyThrows
+    public void sameBytesAsObjectSerializerImpl() {
+        SerializerConfig config = SerializerConfig.builder().classTable(true).compact(true).build();
+        ObjectSerializer pooledSerializer = new PooledObjectSerializer(config);
+        Student student = new Student("ФПМ", new University("ДНУ", 4));
+        System.out.println("Before: " + student);
+
+        byte[] bytes = pooledSerializer.serializeObj(student);
+        System.out.println("Size in bytes: " + bytes.length);
+
+        Student deserializeStudent = (Student) pooledSerializer.deserializeObj(bytes);
+        System.out.println("After: " + deserializeStudent);
+
+        assertEquals(student, deserializeStudent);
+        assertArrayEquals(new ObjectSerializerImpl(config).serializeObj(student), bytes);
+    }
+
+    @Test
+    @SneakyThrows
+    public void contextsAreResetBetweenCalls() {
+        ObjectSerializer pooledSerializer = new PooledObjectSerializer(
+                SerializerConfig.builder().classTable(true).referenceTracking(true).build(), 1);
+        University university = new University("DNU", 4);
+        List<University> universities = new ArrayList<>(Arrays.asList(university, university));
+
+        byte[] first = pooledSerializer.serializeObj(universities);
+        byte[] second = pooledSerializer.serializeObj(universities);
+        assertArrayEquals(first, second);
+
+        List<University> deserializeUniversities = (List<University>) pooledSerializer.deserializeObj(second);
+        assertEquals(universities, deserializeUniversities);
+        assertSame(deserializeUniversities.get(0), deserializeUniversities.get(1));
+        assertEquals(universities, pooledSerializer.deserializeObj(first));
+    }
+
+    @Test
+    @SneakyThrows
+    public void serializeToByteBuffer() {
+        ObjectSerializer pooledSerializer = new PooledObjectSerializer(
+                SerializerConfig.builder().referenceTracking(true).build());
+        TreeNode root = new TreeNode("root");
+        root.addChild(new TreeNode("leaf"));
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+        pooledSerializer.serializeObj(root, buffer);
+        pooledSerializer.serializeObj("tail", buffer);
+        buffer.flip();
+
+        assertEquals(root, pooledSerializer.deserializeObj(buffer));
+        assertEquals("tail", pooledSerializer.deserializeObj(buffer));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    @SneakyThrows
+    public void serializeToStreamAndChannel() {
+        ObjectSerializer pooledSerializer = new PooledObjectSerializer();
+        Student student = new Student("FPM", new University("DNU", 4));
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        pooledSerializer.serializeObj(student, baos);
+        pooledSerializer.serializeObj("tail", Channels.newChannel(baos));
+
+        ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(baos.toByteArray()));
+        ObjectSerializer serializer = new ObjectSerializerImpl();
+        assertEquals(student, serializer.deserializeObj(channel));
+        assertEquals("tail", pooledSerializer.deserializeObj(channel));
+    }
+
+    @Test
+    @SneakyThrows
+    public void concurrentCalls() {
+        ObjectSerializer pooledSerializer = new PooledObjectSerializer(
+                SerializerConfig.builder().classTable(true).referenceTracking(true).compact(true).build(), 2);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        Map<String, University> map = new HashMap<>();
+                        map.put("u" + thread, new University("U" + thread + "-" + i, i));
+                        map.put("v" + i, new University("V" + i, thread));
+                        assertEquals(map, pooledSerializer.deserializeObj(pooledSerializer.serializeObj(map)));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
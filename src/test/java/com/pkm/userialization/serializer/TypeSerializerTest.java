@@ -0,0 +1,103 @@
+package com.pkm.userialization.serializer;
+
+import com.pkm.userialization.testclasses.Student;
+import com.pkm.userialization.testclasses.University;
+import lombok.SneakyThrows;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TypeSerializerTest {
+
+    private static final class UniversitySerializer implements TypeSerializer<University> {
+
+        final AtomicInteger written = new AtomicInteger();
+        final AtomicInteger read = new AtomicInteger();
+
+        @Override
+        public void write(University value, TypeOutput out) throws IOException {
+            written.incrementAndGet();
+            out.writeString(value.getName());
+            out.writeByte(value.getAccreditationLevel());
+        }
+
+        @Override
+        public University read(TypeInput in) throws IOException {
+            read.incrementAndGet();
+            String name = in.readString();
+            return new University(name, in.readByte());
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    public void customSerializerReplacesReflection() {
+        UniversitySerializer universities = new UniversitySerializer();
+        SerializerConfig[] configs = {
+                SerializerConfig.DEFAULT,
+                SerializerConfig.builder().compact(true).classTable(true).referenceTracking(true).stringTableSize(16).build()
+        };
+        for (SerializerConfig config : configs) {
+            ObjectSerializer custom = new ObjectSerializerImpl(config.toBuilder()
+                    .typeSerializer(University.class, universities)
+                    .build());
+            ObjectSerializer reflective = new ObjectSerializerImpl(config);
+
+            University university = new University("MSU", 3);
+            List<Object> list = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                list.add(new Student("F" + i, university));
+            }
+            list.add(university);
+            universities.written.set(0);
+            universities.read.set(0);
+
+            byte[] bytes = custom.serializeObj(list);
+            List<Object> result = (List<Object>) custom.deserializeObj(bytes);
+            System.out.println("Custom size: " + bytes.length + ", reflective size: " + reflective.serializeObj(list).length);
+
+            assertEquals(list, result);
+            assertTrue(bytes.length < reflective.serializeObj(list).length);
+            int expected = config.isReferenceTracking() ? 1 : 11;
+            assertEquals(expected, universities.written.get());
+            assertEquals(expected, universities.read.get());
+            if (config.isReferenceTracking()) {
+                assertSame(((Student) result.get(0)).getUniversity(), result.get(10));
+            }
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    public void serializeJdkTypes() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("uuid", UUID.randomUUID());
+        values.put("bigInteger", new BigInteger("-123456789012345678901234567890"));
+        values.put("bigDecimal", new BigDecimal("12345.678900"));
+        values.put("instant", Instant.ofEpochSecond(1_600_000_000L, 123_456_789));
+        values.put("duration", Duration.ofMillis(-1500));
+        values.put("date", LocalDate.of(2020, 2, 29));
+        values.put("time", LocalTime.of(23, 59, 59, 999));
+        values.put("dateTime", LocalDateTime.of(1970, 1, 1, 0, 0));
+        values.put("list", Arrays.asList(BigDecimal.ZERO, BigDecimal.ONE.negate(), null));
+
+        SerializerConfig[] configs = {
+                SerializerConfig.builder().typeSerializers(TypeSerializers.JDK).build(),
+                SerializerConfig.builder().typeSerializers(TypeSerializers.JDK).compact(true).classTable(true)
+                        .indexed(true).build()
+        };
+        for (SerializerConfig config : configs) {
+            ObjectSerializer serializer = new ObjectSerializerImpl(config);
+            byte[] bytes = serializer.serializeObj(values);
+            System.out.println("Size: " + bytes.length);
+            assertEquals(values, serializer.deserializeObj(bytes));
+        }
+    }
+}
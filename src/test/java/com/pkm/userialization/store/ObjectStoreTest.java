@@ -0,0 +1,128 @@
+package com.pkm.userialization.store;
+
+import com.pkm.userialization.serializer.ObjectSerializerImpl;
+import com.pkm.userialization.serializer.SerializerConfig;
+import com.pkm.userialization.testclasses.Gender;
+import com.pkm.userialization.testclasses.Student;
+import com.pkm.userialization.testclasses.University;
+import lombok.SneakyThrows;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class ObjectStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Student student(int i) {
+        Student student = new Student("F" + i, new University("U" + i, i % 5));
+        student.setName("Name" + i);
+        student.setAge(18 + i);
+        student.setGender(i % 2 == 0 ? Gender.MALE : Gender.FEMALE);
+        return student;
+    }
+
+    @Test
+    @SneakyThrows
+    public void putGetRemoveAndReopen() {
+        Path directory = folder.getRoot().toPath();
+        ObjectSerializerImpl serializer = new ObjectSerializerImpl(SerializerConfig.builder().compact(true).build());
+
+        try (ObjectStore store = ObjectStore.open(directory, serializer, 4096)) {
+            for (int i = 0; i < 100; i++) {
+                store.put("student" + i, student(i));
+            }
+            store.put("student0", student(1000));
+            store.remove("student1");
+            store.remove("unknown");
+
+            System.out.println("Segments: " + store.segmentCount());
+            assertTrue(store.segmentCount() > 1);
+            assertEquals(99, store.size());
+            assertEquals(student(1000), store.get("student0"));
+            assertEquals(student(50), store.get("student50"));
+            assertNull(store.get("student1"));
+            assertFalse(store.contains("student1"));
+        }
+
+        try (ObjectStore store = ObjectStore.open(directory, serializer, 4096)) {
+            assertEquals(99, store.size());
+            assertEquals(student(1000), store.get("student0"));
+            assertEquals(student(99), store.get("student99"));
+            assertNull(store.get("student1"));
+
+            store.put("student100", student(100));
+            assertEquals(student(100), store.get("student100"));
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    public void compact() {
+        Path directory = folder.getRoot().toPath();
+        ObjectSerializerImpl serializer = new ObjectSerializerImpl(SerializerConfig.builder().build());
+
+        try (ObjectStore store = ObjectStore.open(directory, serializer, 4096)) {
+            for (int round = 0; round < 10; round++) {
+                for (int i = 0; i < 20; i++) {
+                    store.put("student" + i, student(round * 20 + i));
+                }
+            }
+            int before = store.segmentCount();
+            store.compact();
+            System.out.println("Segments before: " + before);
+            System.out.println("Segments after: " + store.segmentCount());
+
+            assertTrue(store.segmentCount() < before);
+            assertEquals(student(190), store.get("student10"));
+        }
+
+        try (ObjectStore store = ObjectStore.open(directory, serializer, 4096)) {
+            assertEquals(20, store.size());
+            for (int i = 0; i < 20; i++) {
+                assertEquals(student(180 + i), store.get("student" + i));
+            }
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    public void recordLargerThanSegment() {
+        ObjectSerializerImpl serializer = new ObjectSerializerImpl(SerializerConfig.builder().build());
+        try (ObjectStore store = ObjectStore.open(folder.getRoot().toPath(), serializer, 256)) {
+            store.put("small", "value");
+            try {
+                store.put("large", new int[1024]);
+                fail();
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
+            }
+            store.put("next", "next value");
+            try {
+                store.put("partial", Collections.nCopies(100, "partially written"));
+                fail();
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
+            }
+            store.put("last", "x");
+
+            assertEquals("value", store.get("small"));
+            assertEquals("next value", store.get("next"));
+            assertFalse(store.contains("large"));
+        }
+
+        try (ObjectStore store = ObjectStore.open(folder.getRoot().toPath(), serializer, 256)) {
+            assertEquals(new HashSet<>(Arrays.asList("small", "next", "last")), store.keys());
+            assertEquals("x", store.get("last"));
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.pkm.userialization.testclasses;
+
+import lombok.*;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+@Getter
+@Setter
+public class Calculation {
+
+    private int left;
+
+    private int right;
+
+    private Operation operation;
+}
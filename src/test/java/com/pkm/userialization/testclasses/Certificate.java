@@ -0,0 +1,25 @@
+package com.pkm.userialization.testclasses;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Objects;
+
+@EqualsAndHashCode
+@ToString
+@Getter
+public class Certificate {
+
+    public static int createdCount;
+
+    private final String title;
+
+    private final int grade;
+
+    public Certificate(String title, int grade) {
+        this.title = Objects.requireNonNull(title);
+        this.grade = grade;
+        createdCount++;
+    }
+}
@@ -0,0 +1,18 @@
+package com.pkm.userialization.testclasses;
+
+import lombok.*;
+
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+@Getter
+public class Passport {
+
+    private final String number;
+
+    private final int series;
+
+    private final long issued;
+
+    private final char category;
+}
@@ -0,0 +1,22 @@
+package com.pkm.userialization.testclasses;
+
+import lombok.*;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(exclude = "neighbour")
+@ToString(exclude = "neighbour")
+@Getter
+@Setter
+public final class Room {
+
+    private String number;
+
+    private Integer capacity;
+
+    private int[] beds;
+
+    private Gender gender;
+
+    private Room neighbour;
+}
@@ -0,0 +1,33 @@
+package com.pkm.userialization.testclasses;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@NoArgsConstructor
+@EqualsAndHashCode(exclude = "parent")
+@ToString(exclude = "parent")
+public class TreeNode {
+
+    @Getter
+    @Setter
+    private String name;
+
+    @Getter
+    @Setter
+    private TreeNode parent;
+
+    @Getter
+    private List<TreeNode> children = new ArrayList<>();
+
+    public TreeNode(String name) {
+        this.name = name;
+    }
+
+    public TreeNode addChild(TreeNode child) {
+        child.setParent(this);
+        children.add(child);
+        return child;
+    }
+}
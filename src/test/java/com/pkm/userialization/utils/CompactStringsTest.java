@@ -0,0 +1,42 @@
+package com.pkm.userialization.utils;
+
+import lombok.SneakyThrows;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class CompactStringsTest {
+
+    @SneakyThrows
+    private static byte[] write(String s) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        CompactStrings.write(new DataOutputStream(baos), s, new byte[8]);
+        return baos.toByteArray();
+    }
+
+    @SneakyThrows
+    private static String read(byte[] bytes) {
+        return CompactStrings.read(new DataInputStream(new ByteArrayInputStream(bytes)), new byte[8]);
+    }
+
+    @Test
+    public void roundTrip() {
+        String[] values = {"", "latin ÿ", "Строка", "emoji 😀", "\uD800x", "x\uDC00", "\uDBFF", "\uDC00\uD800"};
+        for (String value : values) {
+            assertEquals(value, read(write(value)));
+        }
+    }
+
+    @Test
+    public void validStringsAreStandardUtf8() {
+        String value = "Строка 😀";
+        byte[] bytes = write(value);
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+
+        assertArrayEquals(utf8, Arrays.copyOfRange(bytes, bytes.length - utf8.length, bytes.length));
+    }
+}
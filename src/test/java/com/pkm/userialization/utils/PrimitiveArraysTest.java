@@ -0,0 +1,39 @@
+package com.pkm.userialization.utils;
+
+import lombok.SneakyThrows;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class PrimitiveArraysTest {
+
+    @Test
+    @SneakyThrows
+    public void writeAndReadInChunks() {
+        byte[] scratch = new byte[16];
+        int[] ints = new int[37];
+        boolean[] booleans = new boolean[300];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = i * 1000 - 7;
+        }
+        for (int i = 0; i < booleans.length; i++) {
+            booleans[i] = i % 3 == 0;
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(baos);
+        PrimitiveArrays.write(out, ints, scratch);
+        PrimitiveArrays.write(out, booleans, scratch);
+        byte[] bytes = baos.toByteArray();
+
+        assertEquals(PrimitiveArrays.sizeOf(int.class, ints.length)
+                + PrimitiveArrays.sizeOf(boolean.class, booleans.length), bytes.length);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        assertArrayEquals(ints, (int[]) PrimitiveArrays.read(in, int.class, ints.length, scratch));
+        assertTrue(Arrays.equals(booleans, (boolean[]) PrimitiveArrays.read(in, boolean.class, booleans.length, scratch)));
+    }
+}
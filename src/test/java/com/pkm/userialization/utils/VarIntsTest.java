@@ -0,0 +1,56 @@
+package com.pkm.userialization.utils;
+
+import lombok.SneakyThrows;
+import org.junit.Test;
+
+import java.io.*;
+
+import static org.junit.Assert.*;
+
+public class VarIntsTest {
+
+    @Test
+    @SneakyThrows
+    public void unsignedVarInt() {
+        int[] values = {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, -1};
+        int[] sizes = {1, 1, 1, 2, 2, 3, 5, 5};
+
+        for (int i = 0; i < values.length; i++) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            VarInts.writeUnsignedVarInt(new DataOutputStream(baos), values[i]);
+            byte[] bytes = baos.toByteArray();
+
+            assertEquals(sizes[i], bytes.length);
+            assertEquals(values[i], VarInts.readUnsignedVarInt(new DataInputStream(new ByteArrayInputStream(bytes))));
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    public void zigzag() {
+        int[] ints = {0, -1, 1, -64, 63, Integer.MIN_VALUE, Integer.MAX_VALUE};
+        long[] longs = {0, -1, 1, Long.MIN_VALUE, Long.MAX_VALUE, 42412553421341232L};
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(baos);
+        for (int value : ints) {
+            VarInts.writeVarInt(out, value);
+        }
+        for (long value : longs) {
+            VarInts.writeVarLong(out, value);
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(baos.toByteArray()));
+        for (int value : ints) {
+            assertEquals(value, VarInts.readVarInt(in));
+        }
+        for (long value : longs) {
+            assertEquals(value, VarInts.readVarLong(in));
+        }
+        assertEquals(0, in.available());
+
+        baos.reset();
+        VarInts.writeVarInt(out, -64);
+        assertEquals(1, baos.size());
+    }
+}